@@ -0,0 +1,68 @@
+#!/bin/sh
+# Runs Parser.jar with an application class-data sharing (AppCDS) archive, so
+# the JVM maps the parser's classes, and the JDK classes it uses, already
+# parsed and verified from Parser.jsa instead of loading them on every run.
+# This matters most for small files, where starting the JVM takes longer than
+# validating them. Needs JDK 10 or later; see README.md.
+#
+#   ./parser.sh [options] filename.xml   runs the parser, as java -jar Parser.jar does
+#   ./parser.sh -archive                 creates Parser.jsa again
+#
+# The archive is created on the first run and again whenever Parser.jar is
+# newer than it, from a few training runs that load the classes of every
+# output format and mode. If it cannot be created the parser runs without it.
+#
+# PARSER_JAR, PARSER_ARCHIVE and JAVA override the jar, the archive and the
+# java command.
+
+dir=$(cd "$(dirname "$0")" && pwd)
+jar=${PARSER_JAR:-$dir/Parser.jar}
+archive=${PARSER_ARCHIVE:-${jar%.jar}.jsa}
+java=${JAVA:-java}
+
+# Records the classes loaded by training runs and dumps them into the archive
+create_archive() {
+    work=$(mktemp -d) || return 1
+    printf '<?xml version="1.0"?>\n<a>\n  <b x="1">text</b>\n  <!-- note -->\n</a>\n' > "$work/valid.xml"
+    printf '<a>\n  <b>\n  <c></d>\n</a>\n' > "$work/errors.xml"
+    gzip -c "$work/errors.xml" > "$work/errors.xml.gz" 2>/dev/null
+
+    n=0
+    for args in "$work/valid.xml" "$work/errors.xml" "-json $work/errors.xml" "-sarif $work/errors.xml" \
+            "-mmap -maxerrors 1 $work/errors.xml" "-parallel $work/errors.xml" "-pipeline $work/errors.xml" \
+            "-checkfirst $work/errors.xml" "$work/errors.xml.gz" "-batch -checkfirst $work"; do
+        n=$((n + 1))
+        # shellcheck disable=SC2086
+        "$java" -Xshare:off -XX:DumpLoadedClassList="$work/classes.$n" -jar "$jar" $args < /dev/null > /dev/null 2>&1
+    done
+    "$java" -Xshare:off -XX:DumpLoadedClassList="$work/classes.stdin" -jar "$jar" - \
+        < "$work/errors.xml" > /dev/null 2>&1
+
+    # the same class from several runs is listed once, in the order first loaded
+    cat "$work"/classes.* | awk '!seen[$0]++' > "$work/classes.lst"
+    # dumped beside the old archive and renamed over it, so a run never maps a partial file
+    "$java" -Xshare:dump -XX:SharedClassListFile="$work/classes.lst" \
+        -XX:SharedArchiveFile="$archive.$$" -cp "$jar" > "$work/dump.log" 2>&1 \
+        && mv -f "$archive.$$" "$archive"
+    status=$?
+    rm -f "$archive.$$"
+    if [ $status -ne 0 ]; then
+        echo "Could not create $archive; see the JDK output below" >&2
+        cat "$work/dump.log" >&2
+    fi
+    rm -rf "$work"
+    return $status
+}
+
+if [ "$1" = "-archive" ]; then
+    create_archive
+    exit
+fi
+if [ ! -f "$archive" ] || [ "$jar" -nt "$archive" ]; then
+    create_archive > /dev/null 2>&1
+fi
+if [ -f "$archive" ] && [ ! "$jar" -nt "$archive" ]; then
+    # -Xshare:auto runs without the archive if this JVM cannot map it
+    exec "$java" -XX:SharedArchiveFile="$archive" -Xshare:auto -jar "$jar" "$@"
+fi
+exec "$java" -jar "$jar" "$@"
@@ -0,0 +1,363 @@
+package implementations;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import exceptions.EmptyQueueException;
+
+/**
+ * Validates many XML files in one run, on a pool of worker threads.
+ * Files can be given one by one, as directories that are walked recursively
+ * for *.xml and *.xml.gz files, or as "@file" lists with one path per line.
+ * A link to a directory is not followed while a directory is walked, since
+ * it can lead back up the tree and have the same files validated again.
+ * A .zip or .jar archive that is named directly stands for its *.xml
+ * entries, which are validated in parallel straight from the archive,
+ * without being extracted, and reported as "archive.zip!/entry.xml".
+ *
+ * Results are printed in the order the files were given, with directory
+ * entries sorted by name and archive entries in the order of the archive,
+ * so the output does not depend on thread timing.
+ * At most a fixed number of files are in flight at once, so memory use does
+ * not grow with the number of files.
+ *
+ * @version 1.0
+ * @see implementations.XMLParser
+ */
+public class BatchValidator {
+    /** Exit status when every file is constructed correctly */
+    public static final int STATUS_VALID = 0;
+    /** Exit status when at least one file has errors */
+    public static final int STATUS_ERRORS = 1;
+    /** Exit status when at least one file could not be read */
+    public static final int STATUS_FILE_ERROR = 2;
+
+    // Files queued per worker thread before the oldest result is printed
+    private static final int FILES_PER_WORKER = 16;
+
+    private PrintStream output;
+    private XMLParser parser;
+    private ExecutorService pool;
+    private MyQueue<Future<Result>> pending;
+    private int maxPending;
+    private int fileCount;
+    private int errorCount;
+    private int failedCount;
+    // Archives whose entries are being validated, closed at the end of the run
+    private MyArrayList<ZipFile> archives;
+
+    /**
+     * Validates one document with the shared parser, handing its results to a sink.
+     */
+    private interface Validation {
+        ValidationReport validate(ReportSink sink) throws IOException;
+    }
+
+    /**
+     * The outcome of validating one file.
+     */
+    private static class Result {
+        private String filePath;
+        private String report;
+        private boolean hasErrors;
+        private String fileError;
+    }
+
+    /**
+     * Constructs a new BatchValidator that uses one worker per core.
+     *
+     * @param output the stream the results are printed to
+     */
+    public BatchValidator(PrintStream output) {
+        this(output, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new BatchValidator with the given number of workers.
+     *
+     * @param output the stream the results are printed to
+     * @param workers the number of files validated at the same time
+     */
+    public BatchValidator(PrintStream output, int workers) {
+        this(output, workers, XMLParser.CheckPolicy.FULL);
+    }
+
+    /**
+     * Constructs a new BatchValidator with the given number of workers and check policy.
+     * With a policy other than FULL, files are checked first, so a batch
+     * of mostly valid files is validated much faster.
+     *
+     * @param output the stream the results are printed to
+     * @param workers the number of files validated at the same time
+     * @param checkPolicy whether files are checked before, or instead of, the full diagnostics
+     */
+    public BatchValidator(PrintStream output, int workers, XMLParser.CheckPolicy checkPolicy) {
+        this(output, workers, new XMLParser(new TextReportSink(output), XMLParser.NO_ERROR_LIMIT, checkPolicy));
+    }
+
+    /**
+     * Constructs a new BatchValidator that validates every file with the given
+     * parser. The parser's own sink is not used, since the results of each
+     * file are printed in the order the files were given.
+     *
+     * @param output the stream the results are printed to
+     * @param workers the number of files validated at the same time
+     * @param parser the parser shared by the workers
+     */
+    public BatchValidator(PrintStream output, int workers, XMLParser parser) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+        }
+        this.output = output;
+        this.parser = parser;
+        this.pool = new ForkJoinPool(workers);
+        this.pending = new MyQueue<>();
+        this.maxPending = workers * FILES_PER_WORKER;
+        this.archives = new MyArrayList<>();
+    }
+
+    /**
+     * Validates every file named by the given paths and prints the result of each,
+     * followed by a summary line.
+     *
+     * @param paths files, directories or "@" followed by a list file; relative
+     *              paths are looked up in the "res" folder
+     * @return STATUS_VALID, STATUS_ERRORS or STATUS_FILE_ERROR, whichever is worst
+     */
+    public int run(String[] paths) {
+        try {
+            for (String path : paths) {
+                if (path.startsWith("@")) {
+                    submitList(XMLParser.resolvePath(path.substring(1)));
+                } else {
+                    submitPath(new File(XMLParser.resolvePath(path)), true);
+                }
+            }
+            while (!pending.isEmpty()) {
+                printNext();
+            }
+        } finally {
+            pool.shutdown();
+            closeArchives();
+        }
+
+        output.println("Validated " + fileCount + " files: " + errorCount + " with errors, "
+                + failedCount + " could not be read.");
+        output.flush();
+        if (failedCount > 0) {
+            return STATUS_FILE_ERROR;
+        }
+        return errorCount > 0 ? STATUS_ERRORS : STATUS_VALID;
+    }
+
+    // Submits every path listed, one per line, in a list file
+    private void submitList(String listPath) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(listPath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    submitPath(new File(XMLParser.resolvePath(line)), true);
+                }
+            }
+        } catch (IOException e) {
+            submit(failed(listPath, e.getMessage()));
+        }
+    }
+
+    /**
+     * Submits a file, or every XML file below a directory in name order,
+     * without following links to directories found below it.
+     *
+     * @param file the file or directory
+     * @param named true if the file was named directly, so it is validated
+     *              whatever its extension
+     */
+    private void submitPath(File file, boolean named) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) {
+                submit(failed(file.getPath(), "cannot list directory"));
+                return;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                if (!(child.isDirectory() && Files.isSymbolicLink(child.toPath()))) {
+                    submitPath(child, false);
+                }
+            }
+        } else if (named && isArchiveName(file.getName().toLowerCase())) {
+            submitArchive(file);
+        } else if (named || isXmlName(file.getName().toLowerCase())) {
+            String filePath = file.getPath();
+            submit(pool.submit(() -> validate(filePath, sink -> parser.validate(filePath, sink))));
+        }
+    }
+
+    /**
+     * Submits every XML entry of a zip or jar archive, in the order of the
+     * archive. Each worker reads and inflates its own entry through the
+     * archive's random access, so nothing is extracted.
+     *
+     * @param file the archive
+     */
+    private void submitArchive(File file) {
+        ZipFile archive;
+        try {
+            archive = new ZipFile(file);
+        } catch (IOException e) {
+            submit(failed(file.getPath(), e.getMessage()));
+            return;
+        }
+        archives.add(archive);
+        Enumeration<? extends ZipEntry> entries = archive.entries();
+        while (entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".xml")) {
+                continue;
+            }
+            String name = file.getPath() + "!/" + entry.getName();
+            submit(pool.submit(() -> validate(name, sink -> {
+                try (InputStream input = archive.getInputStream(entry)) {
+                    return parser.validate(name, input, sink);
+                }
+            })));
+        }
+    }
+
+    // Closes every archive opened by the run, once their entries are done
+    private void closeArchives() {
+        for (int i = 0; i < archives.size(); i++) {
+            try {
+                archives.get(i).close();
+            } catch (IOException e) {
+                // nothing more is read from the archive
+            }
+        }
+        archives.clear();
+    }
+
+    // Whether a file found in a directory is XML, plain or gzip-compressed
+    static boolean isXmlName(String name) {
+        return name.endsWith(".xml") || name.endsWith(".xml.gz");
+    }
+
+    // Whether a file named directly is an archive of XML files
+    private static boolean isArchiveName(String name) {
+        return name.endsWith(".zip") || name.endsWith(".jar");
+    }
+
+    // Queues a result, printing the oldest ones once too many are in flight
+    private void submit(Future<Result> result) {
+        pending.enqueue(result);
+        while (pending.size() > maxPending) {
+            printNext();
+        }
+    }
+
+    // Waits for the oldest file and prints its result
+    private void printNext() {
+        Result result;
+        try {
+            result = pending.dequeue().get();
+        } catch (EmptyQueueException e) {
+            return;
+        } catch (ExecutionException e) {
+            result = new Result();
+            result.filePath = "?";
+            result.fileError = String.valueOf(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a result", e);
+        }
+
+        fileCount++;
+        if (result.fileError != null) {
+            failedCount++;
+            output.println(result.filePath + ": File error: " + result.fileError);
+            return;
+        }
+        if (result.hasErrors) {
+            errorCount++;
+        }
+        printLines(output, result.filePath, result.report);
+    }
+
+    /**
+     * Prints each line of a report after the path of its file. Lines are
+     * found by hand rather than with a regular expression, so a batch run
+     * does not load and compile java.util.regex just to print its results.
+     *
+     * @param output the stream to print to
+     * @param filePath the path of the file
+     * @param report the text printed for the file
+     */
+    static void printLines(PrintStream output, String filePath, String report) {
+        // trailing line terminators end the last line, not start another
+        int length = report.length();
+        while (length > 0 && (report.charAt(length - 1) == '\n' || report.charAt(length - 1) == '\r')) {
+            length--;
+        }
+        int start = 0;
+        do {
+            int end = start;
+            while (end < length && report.charAt(end) != '\n' && report.charAt(end) != '\r') {
+                end++;
+            }
+            output.println(filePath + ": " + report.substring(start, end));
+            if (end + 1 < length && report.charAt(end) == '\r' && report.charAt(end + 1) == '\n') {
+                end++;
+            }
+            start = end + 1;
+        } while (start < length);
+    }
+
+    /**
+     * Validates a single file or archive entry with the shared parser,
+     * capturing what it prints as text. A document the parser fails on is
+     * reported as a file error under its own path.
+     *
+     * @param filePath the path of the file, or the name of the entry
+     * @param validation the validation of the document
+     * @return the result for the file
+     */
+    private Result validate(String filePath, Validation validation) {
+        Result result = new Result();
+        result.filePath = filePath;
+        StringWriter buffer = new StringWriter();
+        ReportSink sink = new TextReportSink(buffer);
+        try {
+            result.hasErrors = validation.validate(sink).hasErrors();
+            sink.finish();
+            result.report = buffer.toString();
+        } catch (IOException e) {
+            result.fileError = e.getMessage();
+        } catch (RuntimeException e) {
+            result.fileError = String.valueOf(e);
+        }
+        return result;
+    }
+
+    // A result for a path that could not be read at all
+    private static Future<Result> failed(String filePath, String message) {
+        Result result = new Result();
+        result.filePath = filePath;
+        result.fileError = message;
+        return CompletableFuture.completedFuture(result);
+    }
+}
@@ -0,0 +1,75 @@
+package implementations;
+
+import java.io.BufferedWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * Base class for sinks that write text through a large buffer, so the output
+ * is written in big blocks instead of once per error. Like PrintStream,
+ * the writer never throws; write errors are ignored.
+ *
+ * @version 1.0
+ * @see implementations.ReportSink
+ */
+public abstract class BufferedReportSink implements ReportSink {
+    /** Number of characters buffered before they are written out */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    /** The buffered writer that subclasses print to */
+    protected final PrintWriter out;
+
+    /**
+     * Constructs a sink that writes to a print stream, in the stream's own
+     * encoding.
+     *
+     * @param output the stream to write to
+     */
+    protected BufferedReportSink(PrintStream output) {
+        this(new PrintStreamWriter(output));
+    }
+
+    /**
+     * Constructs a sink that writes to a writer.
+     *
+     * @param writer the writer to write to
+     */
+    protected BufferedReportSink(Writer writer) {
+        this.out = new PrintWriter(new BufferedWriter(writer, BUFFER_SIZE), false);
+    }
+
+    /**
+     * Flushes everything buffered so far.
+     */
+    @Override
+    public void finish() {
+        out.flush();
+    }
+
+    /**
+     * Passes blocks of characters on to a PrintStream, which encodes them.
+     */
+    private static class PrintStreamWriter extends Writer {
+        private final PrintStream output;
+
+        private PrintStreamWriter(PrintStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            output.print(new String(chars, offset, length));
+        }
+
+        @Override
+        public void flush() {
+            output.flush();
+        }
+
+        @Override
+        public void close() {
+            output.close();
+        }
+    }
+}
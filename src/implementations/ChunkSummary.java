@@ -0,0 +1,224 @@
+package implementations;
+
+/**
+ * Compact summary of the tags in one chunk of a document.
+ * A start tag directly followed by its matching end tag has no effect on the
+ * parser, whatever state it is in, so the summary drops every such pair as the
+ * tags arrive. What remains is, in order, the tags of the chunk that could not
+ * be matched inside it. Replaying the summaries of all chunks in order gives
+ * the same errors as processing every tag of the document.
+ *
+ * Line numbers are counted from 1 at the start of the chunk, and columns
+ * from 1 at the start of each line. Names are kept as their ids in the
+ * parser's SymbolTable, and the text of each tag as its byte offset in the
+ * file and its length.
+ *
+ * A chunk is scanned as if it started outside of any comment or other markup.
+ * The summary keeps the markup context at its end, so the parser can tell
+ * when the next chunk was scanned from the wrong context and scan it again.
+ *
+ * @version 1.0
+ * @see implementations.TagLexer
+ */
+public class ChunkSummary implements TagLexer.TagHandler {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private boolean[] endTags;
+    private int[] nameIds;
+    private long[] offsets;
+    private int[] lengths;
+    private int[] lineNumbers;
+    private int[] columns;
+    private int size;
+    private int lineCount;
+    private long endContext;
+    private long chunkOffset;
+    private SymbolTable symbols;
+
+    /**
+     * Constructs an empty summary.
+     *
+     * @param symbols the table tag names are interned in
+     * @param chunkOffset the byte offset of the chunk in the file
+     */
+    public ChunkSummary(SymbolTable symbols, long chunkOffset) {
+        this.symbols = symbols;
+        this.chunkOffset = chunkOffset;
+        endTags = new boolean[DEFAULT_CAPACITY];
+        nameIds = new int[DEFAULT_CAPACITY];
+        offsets = new long[DEFAULT_CAPACITY];
+        lengths = new int[DEFAULT_CAPACITY];
+        lineNumbers = new int[DEFAULT_CAPACITY];
+        columns = new int[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Adds a tag found in the chunk, cancelling it against the previous tag
+     * when they form a matching start and end pair.
+     * Self-closing tags are ignored.
+     *
+     * @param lexer the lexer holding the current tag
+     * @param type the tag type, one of the TagLexer tag type constants
+     */
+    @Override
+    public void handleTag(TagLexer lexer, int type) {
+        if (type == TagLexer.SELF_CLOSING_TAG) {
+            return;
+        }
+        int nameId = lexer.getNameId(symbols);
+        if (type == TagLexer.END_TAG && size > 0 && !endTags[size - 1] && nameIds[size - 1] == nameId) {
+            size--;
+            return;
+        }
+        ensureCapacity();
+        endTags[size] = type == TagLexer.END_TAG;
+        nameIds[size] = nameId;
+        offsets[size] = chunkOffset + lexer.getTagOffset();
+        lengths[size] = lexer.getTagLength();
+        lineNumbers[size] = lexer.getLineNumber();
+        columns[size] = lexer.getColumn();
+        size++;
+    }
+
+    private void ensureCapacity() {
+        if (size < nameIds.length) {
+            return;
+        }
+        int capacity = nameIds.length * 2;
+        boolean[] newEndTags = new boolean[capacity];
+        int[] newNameIds = new int[capacity];
+        long[] newOffsets = new long[capacity];
+        int[] newLengths = new int[capacity];
+        int[] newLineNumbers = new int[capacity];
+        int[] newColumns = new int[capacity];
+        System.arraycopy(endTags, 0, newEndTags, 0, size);
+        System.arraycopy(nameIds, 0, newNameIds, 0, size);
+        System.arraycopy(offsets, 0, newOffsets, 0, size);
+        System.arraycopy(lengths, 0, newLengths, 0, size);
+        System.arraycopy(lineNumbers, 0, newLineNumbers, 0, size);
+        System.arraycopy(columns, 0, newColumns, 0, size);
+        endTags = newEndTags;
+        nameIds = newNameIds;
+        offsets = newOffsets;
+        lengths = newLengths;
+        lineNumbers = newLineNumbers;
+        columns = newColumns;
+    }
+
+    /**
+     * Returns the number of tags left in this summary.
+     *
+     * @return the number of unmatched tags in the chunk
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the tag at the given index is an end tag.
+     *
+     * @param index the index of the tag, in document order
+     * @return true for an end tag, false for a start tag
+     */
+    public boolean isEndTag(int index) {
+        return endTags[index];
+    }
+
+    /**
+     * Returns the id of the name of the tag at the given index.
+     *
+     * @param index the index of the tag, in document order
+     * @return the id of the name in the symbol table
+     */
+    public int getNameId(int index) {
+        return nameIds[index];
+    }
+
+    /**
+     * Returns the byte offset in the file of the tag at the given index.
+     *
+     * @param index the index of the tag, in document order
+     * @return the offset of the tag's '<'
+     */
+    public long getOffset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the length in bytes of the tag at the given index.
+     *
+     * @param index the index of the tag, in document order
+     * @return the length of the tag, attributes included
+     */
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the line number of the tag at the given index, counted from the
+     * start of the chunk.
+     *
+     * @param index the index of the tag, in document order
+     * @return the line number within the chunk
+     */
+    public int getLineNumber(int index) {
+        return lineNumbers[index];
+    }
+
+    /**
+     * Returns the column of the tag at the given index in its line.
+     *
+     * @param index the index of the tag, in document order
+     * @return the column of the tag's '<', counted from 1
+     */
+    public int getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Returns the byte offset in the file of the start of the chunk, which
+     * the offsets of its tags are counted from.
+     *
+     * @return the offset of the chunk when it was scanned
+     */
+    public long getChunkOffset() {
+        return chunkOffset;
+    }
+
+    /**
+     * Returns the number of line terminators in the chunk.
+     *
+     * @return the number of lines the chunk ends
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Sets the number of line terminators in the chunk, once it has been scanned.
+     *
+     * @param lineCount the number of lines the chunk ends
+     */
+    public void setLineCount(int lineCount) {
+        this.lineCount = lineCount;
+    }
+
+    /**
+     * Returns the markup context at the end of the chunk.
+     *
+     * @return the context returned by TagLexer.getMarkupContext(), or 0 for none
+     */
+    public long getEndContext() {
+        return endContext;
+    }
+
+    /**
+     * Sets the markup context at the end of the chunk, once it has been scanned.
+     *
+     * @param endContext the context returned by TagLexer.getMarkupContext()
+     */
+    public void setEndContext(long endContext) {
+        this.endContext = endContext;
+    }
+}
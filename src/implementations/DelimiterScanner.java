@@ -0,0 +1,96 @@
+package implementations;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Finds the next byte that the lexer has to look at in a run of bytes it
+ * otherwise ignores: a line terminator, or the one byte that can end the
+ * run, such as the '<' that ends text or the '-' that may end a comment.
+ * Every other byte can be skipped.
+ *
+ * The search reads eight bytes at a time as one long and tests all of them
+ * at once with a few arithmetic operations (SIMD within a register), so no
+ * branch is taken per byte. The bytes are read in little-endian order, so the
+ * lowest matching byte of a word is the first one in the document.
+ *
+ * @version 1.0
+ * @see implementations.TagLexer
+ */
+public final class DelimiterScanner {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long LINE_FEEDS = ONES * '\n';
+    private static final long CARRIAGE_RETURNS = ONES * '\r';
+
+    private DelimiterScanner() {
+    }
+
+    /**
+     * Returns the index of the first delimiter, '\n' or '\r' in a range of a buffer.
+     * The position of the buffer is not used or changed. The search is
+     * fastest in a little-endian buffer, whose words need no reordering.
+     *
+     * @param buffer the bytes to search
+     * @param from the index of the first byte to search
+     * @param limit the index after the last byte to search
+     * @param delimiter the byte to find, besides line terminators
+     * @return the index of the first delimiter, or limit if there is none
+     */
+    public static int indexOfDelimiter(ByteBuffer buffer, int from, int limit, byte delimiter) {
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        long delimiters = ONES * (delimiter & 0xFF);
+        int i = from;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            long word = buffer.getLong(i);
+            long match = delimiters(bigEndian ? Long.reverseBytes(word) : word, delimiters);
+            if (match != 0) {
+                return i + (Long.numberOfTrailingZeros(match) >>> 3);
+            }
+        }
+        for (; i < limit; i++) {
+            if (isDelimiter(buffer.get(i), delimiter)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Returns the index of the first delimiter, '\n' or '\r' in a range of
+     * bytes, looking at one byte at a time.
+     *
+     * @param bytes the bytes to search
+     * @param from the index of the first byte to search
+     * @param limit the index after the last byte to search
+     * @param delimiter the byte to find, besides line terminators
+     * @return the index of the first delimiter, or limit if there is none
+     */
+    public static int indexOfDelimiterScalar(byte[] bytes, int from, int limit, byte delimiter) {
+        for (int i = from; i < limit; i++) {
+            if (isDelimiter(bytes[i], delimiter)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isDelimiter(byte b, byte delimiter) {
+        return b == delimiter || b == '\n' || b == '\r';
+    }
+
+    /*
+     * Sets the high bit of each byte of the word that is a delimiter.
+     * A byte of (word ^ pattern) is zero where the word holds the pattern's
+     * byte; (v - ONES) & ~v & HIGHS flags the lowest zero byte exactly, and
+     * may only add false flags above it, so the lowest flag of the three
+     * combined is always the first delimiter.
+     */
+    private static long delimiters(long word, long delimiters) {
+        return zeroBytes(word ^ delimiters) | zeroBytes(word ^ LINE_FEEDS) | zeroBytes(word ^ CARRIAGE_RETURNS);
+    }
+
+    private static long zeroBytes(long v) {
+        return (v - ONES) & ~v & HIGHS;
+    }
+}
@@ -0,0 +1,391 @@
+package implementations;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Watches directories, and every directory below them, with a WatchService
+ * and validates their *.xml and *.xml.gz files again whenever they change.
+ * Every file is validated once when it is first seen; after that, only a
+ * file that changed is validated and reported again, with its lines starting
+ * with its path as in a batch run. A file that is deleted is reported once.
+ *
+ * Events are handled on the thread that calls run(), and files are validated
+ * on a pool of worker threads, so a large file being validated never holds
+ * up the events of other files. An editor that saves a file often writes it
+ * in several steps, so a file is only validated once no event has come for
+ * it for the debounce delay, and a file is never validated by two workers at
+ * once. The result of each file is kept in memory with the size and time of
+ * the version that was validated, so an event that leaves a file as it was,
+ * such as opening it, does not validate or report it again. Once a burst of
+ * changes has been reported, a summary line counts the results of every file
+ * being watched.
+ *
+ * @version 1.0
+ * @see implementations.BatchValidator
+ */
+public class DirectoryWatcher implements Closeable {
+    /** Milliseconds without events after which a changed file is validated */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final PrintStream output;
+    private final XMLParser parser;
+    private final ExecutorService pool;
+    private final WatchService watcher;
+    private final long debounceMillis;
+    // Watched directory of each key; used by the event thread only
+    private final Map<WatchKey, Path> directories;
+    // Files with recent events, in the order first seen, and when each is due; event thread only
+    private final Map<Path, Long> pending;
+    // Files being validated by a worker
+    private final Set<Path> inFlight;
+    // Result of every file being watched, by path
+    private final Map<Path, Result> results;
+    // Files being validated, and whether any was reported since the last summary
+    private final AtomicInteger running;
+    private final AtomicBoolean reported;
+
+    /**
+     * The result of the version of a file that was validated last.
+     */
+    private static class Result {
+        private long size;
+        private FileTime modified;
+        private boolean hasErrors;
+        private String fileError;
+    }
+
+    /**
+     * Constructs a watcher that validates files on one worker per core.
+     *
+     * @param output the stream the results are printed to
+     * @throws IOException if the file system cannot be watched
+     */
+    public DirectoryWatcher(PrintStream output) throws IOException {
+        this(output, Runtime.getRuntime().availableProcessors(), DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Constructs a watcher.
+     *
+     * @param output the stream the results are printed to
+     * @param workers the number of files validated at the same time
+     * @param debounceMillis the milliseconds without events after which a
+     *                       changed file is validated
+     * @throws IOException if the file system cannot be watched
+     */
+    public DirectoryWatcher(PrintStream output, int workers, long debounceMillis) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+        }
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Debounce delay cannot be negative: " + debounceMillis);
+        }
+        this.output = output;
+        this.parser = new XMLParser(new TextReportSink(output));
+        this.pool = Executors.newFixedThreadPool(workers);
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.debounceMillis = debounceMillis;
+        this.directories = new HashMap<>();
+        this.pending = new LinkedHashMap<>();
+        this.inFlight = ConcurrentHashMap.newKeySet();
+        this.results = new ConcurrentHashMap<>();
+        this.running = new AtomicInteger();
+        this.reported = new AtomicBoolean();
+    }
+
+    /**
+     * Starts watching a directory and every directory below it, and queues
+     * each XML file in them to be validated. Called before run(), or from
+     * the thread that runs it.
+     *
+     * @param directory the directory to watch
+     * @throws IOException if the directory cannot be read or watched, or is not a directory
+     */
+    public void watch(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new NotDirectoryException(directory.toString());
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                directories.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                if (isXmlFile(file)) {
+                    schedule(file, System.currentTimeMillis());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // a file deleted while the tree is walked has nothing to report
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Handles events and hands changed files to the workers until the watcher
+     * is closed or the thread is interrupted.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting for events
+     */
+    public void run() throws InterruptedException {
+        try {
+            while (true) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watcher.take();
+                } else {
+                    key = watcher.poll(Math.max(0, nextDeadline() - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                }
+                while (key != null) {
+                    handleEvents(key);
+                    key = watcher.poll();
+                }
+                dispatchDueFiles();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // closed by close(), which ends the watch
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Stops watching, ending run() once it next looks for events.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+    }
+
+    /**
+     * Queues the files named by the events of a directory, and watches any
+     * directory created in it.
+     *
+     * @param key the key of the directory, which is reset for its next events
+     */
+    private void handleEvents(WatchKey key) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events were lost, so every file is looked at again
+                rescan();
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    watch(path);
+                } catch (IOException e) {
+                    // deleted again already, or unreadable; its files cannot be watched
+                }
+            } else if (isXmlFile(path)) {
+                schedule(path, System.currentTimeMillis() + debounceMillis);
+            }
+        }
+        if (!key.reset()) {
+            // the directory is gone, so the files known in it are reported as deleted
+            directories.remove(key);
+            for (Path file : results.keySet()) {
+                if (file.startsWith(directory)) {
+                    schedule(file, System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    // Queues every file being watched and every XML file in a watched directory
+    private void rescan() {
+        long now = System.currentTimeMillis();
+        for (Path file : results.keySet()) {
+            schedule(file, now);
+        }
+        for (Path directory : new HashMap<>(directories).values()) {
+            try {
+                watch(directory);
+            } catch (IOException e) {
+                // a directory that is gone has its files rescheduled above
+            }
+        }
+    }
+
+    // Queues a file to be validated at the given time, putting off any earlier time it had
+    private void schedule(Path file, long due) {
+        Long previous = pending.get(file);
+        pending.put(file, previous == null ? due : Math.max(previous, due));
+    }
+
+    // Returns the soonest time a queued file is due
+    private long nextDeadline() {
+        long next = Long.MAX_VALUE;
+        for (long due : pending.values()) {
+            next = Math.min(next, due);
+        }
+        return next;
+    }
+
+    // Hands every file that is due to a worker, unless one is validating it already
+    private void dispatchDueFiles() {
+        long now = System.currentTimeMillis();
+        // counted as running itself, so a worker that is done first does not end the burst
+        running.incrementAndGet();
+        Iterator<Map.Entry<Path, Long>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, Long> entry = entries.next();
+            if (entry.getValue() > now) {
+                continue;
+            }
+            Path file = entry.getKey();
+            if (!inFlight.add(file)) {
+                // validated again once the worker is done, in case it read the file before this change
+                entry.setValue(now + debounceMillis);
+                continue;
+            }
+            entries.remove();
+            running.incrementAndGet();
+            pool.execute(() -> update(file));
+        }
+        finishRun();
+    }
+
+    /**
+     * Validates a file again if it changed since it was last validated, and
+     * reports it. Runs on a worker.
+     *
+     * @param file the file to look at
+     */
+    private void update(Path file) {
+        try {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                if (results.remove(file) != null) {
+                    print(file + ": deleted");
+                }
+                return;
+            } catch (IOException e) {
+                attributes = null;
+            }
+            if (attributes != null && attributes.isDirectory()) {
+                return;
+            }
+            Result old = results.get(file);
+            if (old != null && attributes != null && old.size == attributes.size()
+                    && attributes.lastModifiedTime().equals(old.modified)) {
+                return;
+            }
+
+            // the size and time are read before the file, so a change made while it is read is seen later
+            Result result = new Result();
+            String report = null;
+            if (attributes != null) {
+                result.size = attributes.size();
+                result.modified = attributes.lastModifiedTime();
+            }
+            StringWriter buffer = new StringWriter();
+            ReportSink sink = new TextReportSink(buffer);
+            try {
+                result.hasErrors = parser.validate(file.toString(), sink).hasErrors();
+                sink.finish();
+                report = buffer.toString();
+            } catch (IOException e) {
+                result.fileError = e.getMessage();
+            }
+            results.put(file, result);
+            synchronized (output) {
+                if (result.fileError != null) {
+                    output.println(file + ": File error: " + result.fileError);
+                } else {
+                    BatchValidator.printLines(output, file.toString(), report);
+                }
+                output.flush();
+            }
+            reported.set(true);
+        } finally {
+            inFlight.remove(file);
+            finishRun();
+        }
+    }
+
+    // Ends one running validation, printing the summary once the last of a burst is done
+    private void finishRun() {
+        if (running.decrementAndGet() == 0 && reported.getAndSet(false)) {
+            printSummary();
+        }
+    }
+
+    // Prints a line of its own, such as a deleted file
+    private void print(String line) {
+        synchronized (output) {
+            output.println(line);
+            output.flush();
+        }
+        reported.set(true);
+    }
+
+    // Counts the results of every file being watched, changed or not
+    private void printSummary() {
+        int errorCount = 0;
+        int failedCount = 0;
+        for (Result result : results.values()) {
+            if (result.fileError != null) {
+                failedCount++;
+            } else if (result.hasErrors) {
+                errorCount++;
+            }
+        }
+        synchronized (output) {
+            output.println("Watching " + results.size() + " files: " + errorCount + " with errors, "
+                    + failedCount + " could not be read.");
+            output.flush();
+        }
+    }
+
+    // Whether a path names a file to validate, plain or gzip-compressed XML
+    private static boolean isXmlFile(Path path) {
+        Path name = path.getFileName();
+        return name != null && BatchValidator.isXmlName(name.toString().toLowerCase());
+    }
+}
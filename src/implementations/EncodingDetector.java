@@ -0,0 +1,217 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds the encoding of an XML document from its first bytes: a byte order
+ * mark, the layout of "<?" in UTF-16, or the encoding declaration of the
+ * prolog, such as {@code <?xml version="1.0" encoding="ISO-8859-1"?>}.
+ *
+ * Tags are made only of ASCII characters, so a document in an ASCII
+ * compatible encoding can be scanned as raw bytes, and only the text of the
+ * tags that are printed has to be decoded. Documents in other encodings,
+ * such as UTF-16, have to be decoded into characters before they are scanned.
+ *
+ * @version 1.0
+ * @see implementations.TagLexer
+ */
+public final class EncodingDetector {
+    /** Bytes read from the start of a document to find its declaration */
+    public static final int PROLOG_SIZE = 1024;
+    private static final int ASCII_SIZE = 128;
+
+    private EncodingDetector() {
+    }
+
+    /**
+     * Finds the encoding of the document in a channel. The bytes are read
+     * from the start of the channel, and its position is not changed.
+     *
+     * @param channel the channel of the document
+     * @param fallback the encoding of a document that declares none
+     * @return the encoding of the document
+     * @throws IOException if the channel cannot be read
+     */
+    public static Charset detect(FileChannel channel, Charset fallback) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PROLOG_SIZE);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // reading until the buffer is full or the file ends
+        }
+        return detect(buffer.array(), buffer.position(), fallback);
+    }
+
+    /**
+     * Finds the encoding of the document in a stream that cannot be read
+     * twice, such as a decompressed file or standard input. The bytes read
+     * are pushed back, so the stream still starts at the first byte.
+     *
+     * @param input the stream of the document, with room to push back PROLOG_SIZE bytes
+     * @param fallback the encoding of a document that declares none
+     * @return the encoding of the document
+     * @throws IOException if the stream cannot be read
+     */
+    public static Charset detect(PushbackInputStream input, Charset fallback) throws IOException {
+        byte[] prolog = new byte[PROLOG_SIZE];
+        int length = 0;
+        int count;
+        while (length < prolog.length && (count = input.read(prolog, length, prolog.length - length)) > 0) {
+            length += count;
+        }
+        input.unread(prolog, 0, length);
+        return detect(prolog, length, fallback);
+    }
+
+    /**
+     * Finds the encoding of a document from its first bytes.
+     * A byte order mark comes first, then the layout of UTF-16 without one,
+     * then the encoding declaration. A declared encoding that is not supported,
+     * or that the declaration itself could not have been written in, is ignored.
+     *
+     * @param bytes the first bytes of the document
+     * @param length the number of bytes given
+     * @param fallback the encoding of a document that declares none
+     * @return the encoding of the document
+     */
+    public static Charset detect(byte[] bytes, int length, Charset fallback) {
+        if (startsWith(bytes, length, 0xEF, 0xBB, 0xBF)) {
+            return StandardCharsets.UTF_8;
+        }
+        if (startsWith(bytes, length, 0xFE, 0xFF) || startsWith(bytes, length, 0xFF, 0xFE)) {
+            // the decoder reads the byte order from the mark
+            return StandardCharsets.UTF_16;
+        }
+        if (startsWith(bytes, length, 0x00, '<', 0x00, '?')) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (startsWith(bytes, length, '<', 0x00, '?', 0x00)) {
+            return StandardCharsets.UTF_16LE;
+        }
+        Charset declared = declaredCharset(bytes, length);
+        if (declared != null && isAsciiCompatible(declared)) {
+            return declared;
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns whether every tag of a document in the given encoding can be
+     * found by scanning its bytes: the encoding must be UTF-8, or encode every
+     * character in a single byte and every ASCII character as itself. The
+     * bytes of a multi-byte UTF-8 character are never ASCII, so they are never
+     * mistaken for markup.
+     *
+     * @param charset the encoding of a document
+     * @return true if the document can be scanned as bytes
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1)) {
+            return true;
+        }
+        if (!charset.canEncode()) {
+            return false;
+        }
+        CharsetEncoder encoder = charset.newEncoder();
+        if (encoder.maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        byte[] ascii = new byte[ASCII_SIZE];
+        for (int i = 0; i < ASCII_SIZE; i++) {
+            ascii[i] = (byte) i;
+        }
+        String decoded = new String(ascii, charset);
+        if (decoded.length() != ASCII_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < ASCII_SIZE; i++) {
+            if (decoded.charAt(i) != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the encoding named by the declaration, or null if there is none or it is not supported
+    private static Charset declaredCharset(byte[] bytes, int length) {
+        if (!startsWith(bytes, length, '<', '?', 'x', 'm', 'l') || length < 6 || !isSpace(bytes[5])) {
+            return null;
+        }
+        // the declaration ends at "?>", or is searched up to the end of the bytes given
+        int end = indexOf(bytes, length, 6, "?>");
+        if (end < 0) {
+            end = length;
+        }
+        int i = indexOf(bytes, end, 6, "encoding");
+        if (i < 0) {
+            return null;
+        }
+        i = skipSpaces(bytes, end, i + "encoding".length());
+        if (i >= end || bytes[i] != '=') {
+            return null;
+        }
+        i = skipSpaces(bytes, end, i + 1);
+        if (i >= end || (bytes[i] != '"' && bytes[i] != '\'')) {
+            return null;
+        }
+        byte quote = bytes[i];
+        int start = i + 1;
+        int close = start;
+        while (close < end && bytes[close] != quote) {
+            close++;
+        }
+        if (close >= end) {
+            return null;
+        }
+        String name = new String(bytes, start, close - start, StandardCharsets.US_ASCII);
+        try {
+            return Charset.isSupported(name) ? Charset.forName(name) : null;
+        } catch (IllegalCharsetNameException e) {
+            return null;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, int... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the index of an ASCII string in bytes[from..length), or -1
+    private static int indexOf(byte[] bytes, int length, int from, String target) {
+        for (int i = from; i + target.length() <= length; i++) {
+            int j = 0;
+            while (j < target.length() && bytes[i + j] == target.charAt(j)) {
+                j++;
+            }
+            if (j == target.length()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(byte[] bytes, int length, int from) {
+        while (from < length && isSpace(bytes[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    // White space as the XML grammar defines it
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,132 @@
+package implementations;
+
+/**
+ * Counts of the errors in a document that were not kept one by one, once a
+ * parser's error limit was reached. For each tag name it keeps the number of
+ * errors and the first and last line they were found on, so its size depends
+ * only on the number of distinct names, not on the number of errors.
+ *
+ * Names are listed in the order their first error was counted.
+ *
+ * @version 1.0
+ * @see implementations.ValidationReport
+ */
+public class ErrorSummary {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Position of each name id in the arrays below plus one, or 0 if not counted yet
+    private int[] positions;
+    private String[] names;
+    private long[] counts;
+    private int[] firstLines;
+    private int[] lastLines;
+    private int size;
+    private long total;
+
+    /**
+     * Constructs an empty summary.
+     */
+    public ErrorSummary() {
+        positions = new int[DEFAULT_CAPACITY];
+        names = new String[DEFAULT_CAPACITY];
+        counts = new long[DEFAULT_CAPACITY];
+        firstLines = new int[DEFAULT_CAPACITY];
+        lastLines = new int[DEFAULT_CAPACITY];
+        size = 0;
+        total = 0;
+    }
+
+    /**
+     * Counts one error.
+     *
+     * @param nameId the id of the tag's name in the parser's SymbolTable
+     * @param name the name of the tag
+     * @param lineNumber the line number of the tag
+     */
+    public void add(int nameId, String name, int lineNumber) {
+        total++;
+        if (nameId >= positions.length) {
+            int[] larger = new int[Math.max(positions.length * 2, nameId + 1)];
+            System.arraycopy(positions, 0, larger, 0, positions.length);
+            positions = larger;
+        }
+        int index = positions[nameId] - 1;
+        if (index >= 0) {
+            counts[index]++;
+            firstLines[index] = Math.min(firstLines[index], lineNumber);
+            lastLines[index] = Math.max(lastLines[index], lineNumber);
+            return;
+        }
+
+        if (size == names.length) {
+            grow();
+        }
+        names[size] = name;
+        counts[size] = 1;
+        firstLines[size] = lineNumber;
+        lastLines[size] = lineNumber;
+        size++;
+        positions[nameId] = size;
+    }
+
+    /**
+     * Returns the number of errors counted.
+     *
+     * @return the number of errors that were not kept one by one
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of distinct tag names counted.
+     *
+     * @return the number of names in this summary
+     */
+    public int size() {
+        return size;
+    }
+
+    public String getName(int index) {
+        checkIndex(index);
+        return names[index];
+    }
+
+    public long getCount(int index) {
+        checkIndex(index);
+        return counts[index];
+    }
+
+    public int getFirstLine(int index) {
+        checkIndex(index);
+        return firstLines[index];
+    }
+
+    public int getLastLine(int index) {
+        checkIndex(index);
+        return lastLines[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    // Doubles the capacity of the per-name arrays
+    private void grow() {
+        int capacity = names.length * 2;
+        String[] newNames = new String[capacity];
+        long[] newCounts = new long[capacity];
+        int[] newFirstLines = new int[capacity];
+        int[] newLastLines = new int[capacity];
+        System.arraycopy(names, 0, newNames, 0, size);
+        System.arraycopy(counts, 0, newCounts, 0, size);
+        System.arraycopy(firstLines, 0, newFirstLines, 0, size);
+        System.arraycopy(lastLines, 0, newLastLines, 0, size);
+        names = newNames;
+        counts = newCounts;
+        firstLines = newFirstLines;
+        lastLines = newLastLines;
+    }
+}
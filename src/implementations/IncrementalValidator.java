@@ -0,0 +1,281 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Validates a file again after an edit by scanning only the part of it
+ * around the edit, for a large file that an editor or a pipeline validates
+ * again after every small change.
+ *
+ * The file is validated in segments of about a checkpoint interval each,
+ * split at line ends as parseParallelXML() splits a file into chunks. At each
+ * checkpoint the validator keeps the ChunkSummary of the segment that starts
+ * there, with the markup context its scan started from. A summary holds the
+ * effect of its segment on the open-tag stack, the tags it leaves unmatched,
+ * which does not depend on the stack the segment starts with, so a segment
+ * that is not scanned again keeps its summary, only moved by the size of the
+ * edit. After an edit, the validator scans again from the last checkpoint
+ * before the edit, and stops at the first old checkpoint after it that the
+ * lexer reaches in the same markup context as the old scan did. Closing a
+ * comment near the start of a file can make that the end of the file. The
+ * summaries are then replayed in order through a ParseContext, as
+ * parseParallelXML() replays them, so the errors are the same as those of a
+ * full validation.
+ *
+ * A gzip-compressed file, or one that is not in an ASCII compatible
+ * encoding, has no checkpoints and is validated in full every time. Documents
+ * always get the full diagnostics, whatever the parser's check policy.
+ * A validator is used by one thread at a time.
+ *
+ * @version 1.0
+ * @see implementations.XMLParser#incrementalValidator(String)
+ * @see implementations.ChunkSummary
+ */
+public class IncrementalValidator {
+    /** Bytes between checkpoints when none is given */
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 1 << 16;
+
+    private final XMLParser parser;
+    private final String filePath;
+    private final ReportSink sink;
+    private final int errorLimit;
+    private final SymbolTable symbols;
+    private final int checkpointInterval;
+    private final ParseContext context;
+    // Segments of the file as last validated, or null if it has to be validated in full
+    private MyArrayList<Segment> segments;
+    private Charset charset;
+    private long size;
+    private long scannedBytes;
+
+    /**
+     * The part of the file from one checkpoint to the next.
+     */
+    private static class Segment {
+        // Offset of the checkpoint in the file as last validated
+        private long start;
+        // Markup context that the segment was scanned from
+        private long startContext;
+        private ChunkSummary summary;
+    }
+
+    /**
+     * Constructs a validator for a file, which is read when it is validated.
+     *
+     * @param parser the parser that validates a file that has no checkpoints
+     * @param filePath the path of the file
+     * @param sink the sink that the results of each validation are handed to
+     * @param errorLimit the most errors kept one by one, or XMLParser.NO_ERROR_LIMIT
+     * @param symbols the table tag names are interned in
+     * @param checkpointInterval the number of bytes between checkpoints
+     */
+    IncrementalValidator(XMLParser parser, String filePath, ReportSink sink, int errorLimit,
+            SymbolTable symbols, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+        }
+        this.parser = parser;
+        this.filePath = filePath;
+        this.sink = sink;
+        this.errorLimit = errorLimit;
+        this.symbols = symbols;
+        this.checkpointInterval = checkpointInterval;
+        this.context = new ParseContext(symbols);
+    }
+
+    /**
+     * Validates the whole file and records its checkpoints.
+     * If the file cannot be read, nothing is handed to the sink.
+     *
+     * @return the report for the file
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public ValidationReport validate() throws IOException {
+        segments = null;
+        scannedBytes = 0;
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            if (XMLParser.isGzip(channel)) {
+                return validateInFull(channel);
+            }
+            charset = EncodingDetector.detect(channel, Charset.defaultCharset());
+            if (!EncodingDetector.isAsciiCompatible(charset)) {
+                return validateInFull(channel);
+            }
+            size = channel.size();
+            MyArrayList<Segment> scanned = new MyArrayList<>();
+            scan(channel, 0, size, 0, scanned);
+            segments = scanned;
+            return replay(channel);
+        }
+    }
+
+    /**
+     * Validates the file again after an edit that replaced the bytes from
+     * offset to offset + removedLength with insertedLength new bytes. Several
+     * edits can be given as one edit that covers all of them. If the size of
+     * the file does not agree with the edit, or the file has no checkpoints,
+     * the whole file is validated again.
+     *
+     * @param offset the offset of the first byte that changed
+     * @param removedLength the number of bytes the edit removed
+     * @param insertedLength the number of bytes the edit inserted in their place
+     * @return the report for the file
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    public ValidationReport revalidate(long offset, long removedLength, long insertedLength) throws IOException {
+        if (offset < 0 || removedLength < 0 || insertedLength < 0) {
+            throw new IllegalArgumentException("Edit cannot be negative: " + offset + ", "
+                    + removedLength + ", " + insertedLength);
+        }
+        if (segments == null || segments.isEmpty() || offset + removedLength > size) {
+            return validate();
+        }
+        MyArrayList<Segment> old = segments;
+        segments = null;
+        scannedBytes = 0;
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            long newSize = channel.size();
+            if (newSize != size - removedLength + insertedLength || XMLParser.isGzip(channel)
+                    || (offset < EncodingDetector.PROLOG_SIZE
+                        && !EncodingDetector.detect(channel, Charset.defaultCharset()).equals(charset))) {
+                return validate();
+            }
+            long delta = insertedLength - removedLength;
+            long editEnd = offset + removedLength;
+
+            // the last checkpoint before the edit, and the first one after it; a checkpoint
+            // right at either end of it could split a "\r\n" pair that the edit makes
+            int first = 0;
+            while (first + 1 < old.size() && old.get(first + 1).start < offset) {
+                first++;
+            }
+            int next = first + 1;
+            while (next < old.size() && old.get(next).start <= editEnd) {
+                next++;
+            }
+
+            MyArrayList<Segment> updated = new MyArrayList<>();
+            for (int i = 0; i < first; i++) {
+                updated.add(old.get(i));
+            }
+            long start = old.get(first).start;
+            long markupContext = old.get(first).startContext;
+            while (true) {
+                long stop = next < old.size() ? old.get(next).start + delta : newSize;
+                markupContext = scan(channel, start, stop, markupContext, updated);
+                start = stop;
+                // the rest of the file is scanned as before once the lexer is back in step
+                if (next >= old.size() || old.get(next).startContext == markupContext) {
+                    break;
+                }
+                next++;
+            }
+            for (int i = next; i < old.size(); i++) {
+                Segment segment = old.get(i);
+                segment.start += delta;
+                updated.add(segment);
+            }
+            segments = updated;
+            size = newSize;
+            return replay(channel);
+        }
+    }
+
+    /**
+     * Returns the number of bytes scanned by the last validation, which is
+     * the size of the file after a full validation.
+     *
+     * @return the number of bytes scanned
+     */
+    public long getScannedBytes() {
+        return scannedBytes;
+    }
+
+    /**
+     * Returns the number of checkpoints recorded by the last validation.
+     *
+     * @return the number of segments, or 0 if the file has no checkpoints
+     */
+    public int getCheckpointCount() {
+        return segments == null ? 0 : segments.size();
+    }
+
+    /**
+     * Scans a range of the file that starts and ends at line ends, in segments
+     * of about the checkpoint interval.
+     *
+     * @param channel the channel of the file
+     * @param start the offset of the first byte of the range
+     * @param stop the offset just past the last byte of the range
+     * @param markupContext the markup context at the start of the range
+     * @param scanned the list that the segments are added to
+     * @return the markup context at the end of the range
+     * @throws IOException if the file cannot be read
+     */
+    private long scan(FileChannel channel, long start, long stop, long markupContext,
+            MyArrayList<Segment> scanned) throws IOException {
+        while (start < stop) {
+            long target = start + checkpointInterval;
+            // stop is a line end, so the line end found before it is never past it
+            long end = target >= stop ? stop : XMLParser.findLineEnd(channel, target);
+            Segment segment = new Segment();
+            segment.start = start;
+            segment.startContext = markupContext;
+            segment.summary = XMLParser.scanChunk(channel, start, end, charset, symbols, markupContext);
+            scanned.add(segment);
+            markupContext = segment.summary.getEndContext();
+            scannedBytes += end - start;
+            start = end;
+        }
+        return markupContext;
+    }
+
+    /**
+     * Replays the summaries of every segment through the context, reading the
+     * text of the tags that are reported from the file.
+     *
+     * @param channel the channel of the file
+     * @return the report for the file
+     */
+    private ValidationReport replay(FileChannel channel) {
+        // the parser's sink, which documents the parser validates may be handed to at the same time
+        synchronized (sink) {
+            context.reset(sink);
+            context.setErrorLimit(errorLimit);
+            context.startDocument(filePath);
+            context.setTextSource(new TagTextSource(channel, charset, TagTextSource.DEFAULT_CACHE_SIZE));
+            try {
+                int lineOffset = 0;
+                for (int i = 0; i < segments.size(); i++) {
+                    Segment segment = segments.get(i);
+                    ChunkSummary summary = segment.summary;
+                    // the summary's offsets are counted from where the segment was when it was scanned
+                    long shift = segment.start - summary.getChunkOffset();
+                    for (int j = 0; j < summary.size(); j++) {
+                        context.processTag(summary.isEndTag(j) ? TagLexer.END_TAG : TagLexer.START_TAG,
+                                summary.getNameId(j), lineOffset + summary.getLineNumber(j),
+                                summary.getColumn(j), summary.getOffset(j) + shift, summary.getLength(j));
+                    }
+                    lineOffset += summary.getLineCount();
+                }
+                context.reportRemainingErrors();
+                return context.endDocument();
+            } finally {
+                context.reset(sink);
+            }
+        }
+    }
+
+    // Validates a file that cannot have checkpoints with the parser, on its own channel
+    private ValidationReport validateInFull(FileChannel channel) throws IOException {
+        scannedBytes = channel.size();
+        synchronized (sink) {
+            return parser.validate(filePath, sink);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package implementations;
+
+import java.io.PrintStream;
+import java.io.Writer;
+
+/**
+ * Prints results as JSON Lines: one JSON object per document, on its own line,
+ * such as
+ * <pre>
+ * {"file":"res/a.xml","errors":[{"kind":"UNCLOSED_TAG","line":3,"column":5,
+ *  "offset":-1,"name":"a","tag":"&lt;a&gt;"}],"errorCount":1,"hasErrors":true,
+ *  "fileError":null,"valid":false}
+ * </pre>
+ * Errors past the parser's error limit are counted in "droppedErrors" and
+ * listed by name in "droppedByName", which is left out when none were dropped.
+ * Errors are written as they are reported, so a document with many errors
+ * is never held in memory as text.
+ *
+ * @version 1.0
+ * @see implementations.ReportSink
+ */
+public class JsonReportSink extends BufferedReportSink {
+    private int errorCount;
+
+    /**
+     * Constructs a JSON sink that writes to a print stream.
+     *
+     * @param output the stream to write to
+     */
+    public JsonReportSink(PrintStream output) {
+        super(output);
+    }
+
+    /**
+     * Constructs a JSON sink that writes to a writer.
+     *
+     * @param writer the writer to write to
+     */
+    public JsonReportSink(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void startDocument(String filePath) {
+        errorCount = 0;
+        out.print("{\"file\":");
+        out.print(quote(filePath));
+        out.print(",\"errors\":[");
+    }
+
+    @Override
+    public void error(ValidationError error) {
+        if (errorCount > 0) {
+            out.print(',');
+        }
+        errorCount++;
+        out.print("{\"kind\":\"");
+        out.print(error.getKind().name());
+        out.print("\",\"line\":");
+        out.print(error.getLine());
+        out.print(",\"column\":");
+        out.print(error.getColumn());
+        out.print(",\"offset\":");
+        out.print(error.getOffset());
+        out.print(",\"name\":");
+        out.print(quote(error.getName()));
+        out.print(",\"tag\":");
+        out.print(quote(error.getTag()));
+        out.print('}');
+    }
+
+    @Override
+    public void endDocument(ValidationReport report) {
+        out.print("],\"errorCount\":");
+        out.print(report.getErrorCount());
+        ErrorSummary dropped = report.getDroppedErrors();
+        out.print(",\"droppedErrors\":");
+        out.print(dropped.getTotal());
+        if (dropped.getTotal() > 0) {
+            out.print(",\"droppedByName\":[");
+            for (int i = 0; i < dropped.size(); i++) {
+                if (i > 0) {
+                    out.print(',');
+                }
+                out.print("{\"name\":");
+                out.print(quote(dropped.getName(i)));
+                out.print(",\"count\":");
+                out.print(dropped.getCount(i));
+                out.print(",\"firstLine\":");
+                out.print(dropped.getFirstLine(i));
+                out.print(",\"lastLine\":");
+                out.print(dropped.getLastLine(i));
+                out.print('}');
+            }
+            out.print(']');
+        }
+        out.print(",\"hasErrors\":");
+        out.print(report.hasErrors());
+        out.print(",\"fileError\":");
+        out.print(quote(report.getFileError()));
+        out.print(",\"valid\":");
+        out.print(report.isValid());
+        out.print('}');
+        out.println();
+    }
+
+    /**
+     * Returns a string as a JSON string literal.
+     *
+     * @param value the string, or null
+     * @return the quoted and escaped string, or null as a JSON literal
+     */
+    static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder(value.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                    break;
+            }
+        }
+        builder.append('"');
+        return builder.toString();
+    }
+}
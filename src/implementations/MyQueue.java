@@ -74,7 +74,7 @@ public class MyQueue<E> implements QueueADT<E>
 		if (queue.isEmpty()) {
 			throw new EmptyQueueException("Cannot dequeue when Queue is empty.");
 		}
-		return queue.remove(queue.get(0));
+		return queue.remove(0);
 	}
 	
 	/**
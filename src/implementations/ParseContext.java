@@ -0,0 +1,416 @@
+package implementations;
+
+import java.nio.ByteBuffer;
+
+import exceptions.EmptyQueueException;
+
+/**
+ * The state of a single parse: the tag stack, the two error queues, the lexer
+ * and the report. Each error is added to the report and handed to a
+ * ReportSink as soon as it is found.
+ * 
+ * A context can be given an error limit N to bound its memory. Only the first
+ * N errors are kept and handed to the sink, the same N errors that come first
+ * without a limit; later ones are only counted in the report's ErrorSummary.
+ * Each of the two queues also holds at most 4N tags. Once a queue is full,
+ * every later tag that would join it is counted as an error straight away,
+ * even if it might have been matched later, and so is every tag still open at
+ * the end of the document. The counts of a document that goes over the limit
+ * are therefore an upper bound. If most of the tags held in the queues cancel
+ * out at the end, fewer than N errors may be kept, but they are still the
+ * first ones. A context is used by one thread at a time, and
+ * can be reset and reused for the next document so its buffers are not
+ * allocated again.
+ * 
+ * @version 1.0
+ * @see implementations.XMLParser
+ */
+public class ParseContext {
+    // Characters or bytes read from a document at a time
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    // Tags each queue holds for every error kept, as tags left in the two queues
+    // can cancel in pairs at the end instead of being reported
+    private static final int QUEUE_TAGS_PER_ERROR = 4;
+    
+    private TagStack tagStack;
+    private MyQueue<TagEntry> errorQueue;
+    private MyQueue<TagEntry> extrasQueue;
+    private TagLexer lexer;
+    private TagLexer.TagHandler tagHandler;
+    private StructureChecker checker;
+    private char[] readBuffer;
+    private ByteBuffer byteBuffer;
+    private SymbolTable symbols;
+    private ReportSink sink;
+    private ValidationReport report;
+    private boolean isErrors;
+    // Most errors kept one by one
+    private int errorLimit;
+    // Whether a tag was counted instead of joining the queue, which then takes no more
+    private boolean errorQueueOverflow;
+    private boolean extrasQueueOverflow;
+    // Tags counted instead of joining errorQ, less the start tags counted for them since
+    private long unqueuedCount;
+    // Where the text of open tags is read back from, or null to keep the text
+    private TagTextSource textSource;
+    
+    /**
+     * Constructs a new ParseContext with empty stacks and queues
+     * and its own symbol table, that prints errors to standard output.
+     */
+    public ParseContext() {
+        this(new SymbolTable());
+    }
+    
+    /**
+     * Constructs a new ParseContext with empty stacks and queues
+     * that prints errors to standard output.
+     * 
+     * @param symbols the table tag names are interned in, which may be shared
+     */
+    public ParseContext(SymbolTable symbols) {
+        tagStack = new TagStack();
+        errorQueue = new MyQueue<>();   
+        extrasQueue = new MyQueue<>();
+        lexer = new TagLexer();
+        tagHandler = this::processTag;
+        checker = new StructureChecker(symbols);
+        this.symbols = symbols;
+        sink = new TextReportSink(System.out);
+        isErrors = false;
+        errorLimit = Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Empties the stack and queues and prepares the context for a new document.
+     * 
+     * @param sink the sink that errors are handed to
+     */
+    public void reset(ReportSink sink) {
+        tagStack.clear();
+        errorQueue.dequeueAll();
+        extrasQueue.dequeueAll();
+        this.sink = sink;
+        report = null;
+        textSource = null;
+        isErrors = false;
+        errorQueueOverflow = false;
+        extrasQueueOverflow = false;
+        unqueuedCount = 0;
+    }
+    
+    /**
+     * Sets the most errors kept one by one. Each error queue holds at most
+     * a few times as many tags.
+     * 
+     * @param errorLimit the limit, or Integer.MAX_VALUE for no limit
+     */
+    public void setErrorLimit(int errorLimit) {
+        this.errorLimit = errorLimit;
+    }
+    
+    /**
+     * Starts the report for a new document and tells the sink about it.
+     * 
+     * @param filePath the path of the document
+     */
+    public void startDocument(String filePath) {
+        report = new ValidationReport(filePath);
+        sink.startDocument(filePath);
+    }
+    
+    /**
+     * Completes the report for the current document and hands it to the sink.
+     * 
+     * @return the report for the document
+     */
+    public ValidationReport endDocument() {
+        report.setHasErrors(isErrors);
+        sink.endDocument(report);
+        return report;
+    }
+    
+    /**
+     * Sets the source that tag text is read back from when an error is printed.
+     * Without a source, the text of every open tag is kept until it is closed.
+     * 
+     * @param textSource the source of the current document, or null
+     */
+    public void setTextSource(TagTextSource textSource) {
+        this.textSource = textSource;
+    }
+    
+    /**
+     * Returns the lexer of this context.
+     * 
+     * @return the lexer used for the current document
+     */
+    public TagLexer getLexer() {
+        return lexer;
+    }
+    
+    /**
+     * Returns the handler that validates each tag found by the lexer.
+     * 
+     * @return the tag handler of this context
+     */
+    public TagLexer.TagHandler getTagHandler() {
+        return tagHandler;
+    }
+    
+    /**
+     * Returns the buffer that a document's characters are read into,
+     * allocated once for the life of the context.
+     * 
+     * @return the read buffer of this context
+     */
+    public char[] getReadBuffer() {
+        if (readBuffer == null) {
+            readBuffer = new char[READ_BUFFER_SIZE];
+        }
+        return readBuffer;
+    }
+    
+    /**
+     * Returns the buffer that a document's bytes are read into,
+     * allocated once for the life of the context.
+     * 
+     * @return the byte read buffer of this context
+     */
+    public ByteBuffer getByteBuffer() {
+        if (byteBuffer == null) {
+            byteBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        }
+        return byteBuffer;
+    }
+    
+    /**
+     * Returns the checker that answers only whether a document is valid.
+     * 
+     * @return the structure checker of this context
+     */
+    public StructureChecker getChecker() {
+        return checker;
+    }
+    
+    /**
+     * Records that the current document has errors without reporting any,
+     * for a document that was only checked.
+     */
+    public void markErrors() {
+        isErrors = true;
+    }
+    
+    /**
+     * Returns whether any errors were found in the current document.
+     * 
+     * @return true if the document has errors
+     */
+    public boolean hasErrors() {
+        return isErrors;
+    }
+    
+    /**
+     * Reconciles the tags left over once the whole file has been processed
+     * and reports every one that is still unmatched.
+     * 
+     * Once a queue has overflowed, the tags it no longer took would have
+     * come after the ones it holds, so what is left of the other queue once
+     * the queue runs out is only counted.
+     */
+    public void reportRemainingErrors() {
+        // Nothing to reconcile when both queues are empty, unless tags were counted instead of queued
+        if (errorQueue.isEmpty() && extrasQueue.isEmpty() && !errorQueueOverflow && !extrasQueueOverflow) {
+            return;
+        }
+        
+        // Pop each E left on the stack into errorQ
+        while (!tagStack.isEmpty()) {
+            queueStackTop();
+        }
+        
+        // Walk both queues once, front to front: while both have E, a matching pair
+        // cancels and an unmatched errorQ E is reported as error
+        try {
+            while (!errorQueue.isEmpty() && !extrasQueue.isEmpty()) {
+                if (errorQueue.peek().getNameId() != extrasQueue.peek().getNameId()) {
+                    reportError(errorQueue.dequeue());
+                } else {
+                    errorQueue.dequeue();
+                    extrasQueue.dequeue();
+                }
+            }
+            
+            // Once either queue is empty, report each E left in both queues as error
+            while (!errorQueue.isEmpty()) {
+                reportOrCount(errorQueue.dequeue(), extrasQueueOverflow);
+            }
+            while (!extrasQueue.isEmpty()) {
+                reportOrCount(extrasQueue.dequeue(), errorQueueOverflow);
+            }
+        } catch (EmptyQueueException e) { } // catch should never execute, it's needed to handle EmptyQueueException
+    }
+
+    /**
+     * Validates a single tag found by the lexer.
+     * Open tags are kept in a TagStack, and a TagEntry is only created
+     * for a tag that goes into one of the MyQueue.java error queues
+     * 
+     * @param lexer the lexer holding the current tag
+     * @param type the tag type, one of the TagLexer tag type constants
+     */
+    private void processTag(TagLexer lexer, int type) {
+        // Self_Closing_Tag
+        // Ignore
+        if (type == TagLexer.SELF_CLOSING_TAG) {
+            return;
+        }
+        processTag(type, lexer.getNameId(symbols), lexer.getLineNumber(), lexer.getColumn(),
+                lexer.getTagOffset(), lexer.getTagLength());
+    }
+    
+    /**
+     * Validates a single start or end tag against the stack and queues.
+     * The tag's text is taken from the lexer, or from the text source
+     * if one is set.
+     * 
+     * @param type the tag type, TagLexer.START_TAG or TagLexer.END_TAG
+     * @param nameId the id of the tag's name
+     * @param lineNumber the line number of the tag
+     * @param column the column of the tag in its line
+     * @param offset the byte offset of the tag in its source
+     * @param length the length of the tag in bytes
+     */
+    public void processTag(int type, int nameId, int lineNumber, int column, long offset, int length) {
+        if (type == TagLexer.END_TAG) {
+            try { 
+                // If matches top of stack, pop stack and all is well
+                if (!tagStack.isEmpty() && tagStack.getNameId(0) == nameId) {
+                    closeStackTop();
+                } 
+                // Else if matches head of errorQ, dequeue and ignore 
+                else if (!errorQueue.isEmpty() && nameId == errorQueue.peek().getNameId()) {
+                    reportError(errorQueue.dequeue());
+                }
+                // Else if stack is empty, add to errorQ
+                else if (tagStack.isEmpty()) {
+                    if (hasErrorQueueRoom()) {
+                        errorQueue.enqueue(newTagEntry(nameId, lineNumber, column, offset, length));
+                    } else {
+                        errorQueueOverflow = true;
+                        unqueuedCount++;
+                        dropError(nameId, lineNumber);
+                    }
+                    isErrors = true;
+                }
+                else {
+                    // Search stack for matching Start_Tag, using the stack's per-name counts
+                    boolean containsMatch = tagStack.contains(nameId);
+                    
+                    // If stack has match, pop each E from stack into errorQ until match, report as error
+                    // This is a single pass down to the match
+                    if (containsMatch) {
+                        while (tagStack.getNameId(0) != nameId) {
+                            queueStackTop();
+                            isErrors = true;
+                        }
+                        closeStackTop();
+                    }                    
+                    // If no match, add E to extrasQ
+                    else {
+                        if (!extrasQueueOverflow && extrasQueue.size() < queueCapacity()) {
+                            extrasQueue.enqueue(newTagEntry(nameId, lineNumber, column, offset, length));
+                        } else {
+                            extrasQueueOverflow = true;
+                            dropError(nameId, lineNumber);
+                        }
+                        isErrors = true;
+                    }
+                }
+            } catch (EmptyQueueException e) { } // catch should never execute, it's needed to handle EmptyQueueException    
+
+        // If Start_Tag
+        } else {
+            // Push on stack, with its text only if it cannot be read back later
+            tagStack.push(nameId, lineNumber, column, offset, length, textSource == null ? lexer.getText() : null);
+        }
+    }
+    
+    // Pops the top of the stack into errorQ, or counts it as an error if errorQ is full
+    private void queueStackTop() {
+        if (hasErrorQueueRoom()) {
+            errorQueue.enqueue(tagStack.popTagEntry(symbols, textSource));
+        } else {
+            errorQueueOverflow = true;
+            unqueuedCount++;
+            dropError(tagStack.getNameId(0), tagStack.getLineNumber(0));
+            tagStack.pop();
+        }
+    }
+    
+    /**
+     * Pops the start tag that the current end tag closes. Once errorQ has
+     * overflowed and run out, the end tag might have matched one of the tags
+     * errorQ did not take instead, leaving the start tag open, so the start
+     * tag is counted as an error, once for each tag errorQ did not take.
+     */
+    private void closeStackTop() {
+        if (unqueuedCount > 0 && errorQueue.isEmpty()) {
+            unqueuedCount--;
+            dropError(tagStack.getNameId(0), tagStack.getLineNumber(0));
+        }
+        tagStack.pop();
+    }
+    
+    // True if errorQ can take another tag; once it has overflowed it takes none,
+    // so what it holds stays the front of what it would hold without a limit
+    private boolean hasErrorQueueRoom() {
+        return !errorQueueOverflow && errorQueue.size() < queueCapacity();
+    }
+    
+    // Most tags each queue holds under the error limit
+    private long queueCapacity() {
+        return (long) errorLimit * QUEUE_TAGS_PER_ERROR;
+    }
+    
+    // Reports a tag left in a queue, or only counts it when the other queue has overflowed,
+    // since the tags that queue did not take might have matched it or been reported first
+    private void reportOrCount(TagEntry tag, boolean otherQueueOverflow) {
+        if (otherQueueOverflow) {
+            dropError(tag.getNameId(), tag.getLineNo());
+        } else {
+            reportError(tag);
+        }
+    }
+    
+    // Counts an error in the report without keeping it
+    private void dropError(int nameId, int lineNumber) {
+        report.getDroppedErrors().add(nameId, symbols.getName(nameId), lineNumber);
+    }
+    
+    // Creates the entry for the current tag when it has to be queued as an error
+    // Only end tags are queued this way
+    private TagEntry newTagEntry(int nameId, int lineNumber, int column, long offset, int length) {
+        if (textSource == null) {
+            return new TagEntry(lexer.getText(), symbols.getName(nameId), nameId, lineNumber, column, true);
+        }
+        return new TagEntry(textSource, offset, length, symbols.getName(nameId), nameId, lineNumber, column, true);
+    }
+    
+    /**
+     * Reports an error for a malformed tag.
+     * The error is added to the report and handed to the sink,
+     * or only counted once the error limit has been reached.
+     * 
+     * @param tag the TagEntry containing the error
+     */
+    private void reportError(TagEntry tag) {
+        if (report.getErrorCount() >= errorLimit) {
+            dropError(tag.getNameId(), tag.getLineNo());
+            return;
+        }
+        ValidationError error = ValidationError.of(tag);
+        report.addError(error);
+        sink.error(error);
+    }
+}
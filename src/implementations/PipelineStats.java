@@ -0,0 +1,90 @@
+package implementations;
+
+/**
+ * Timings of a read-ahead pipeline: how much was read, and how long each
+ * side waited for the other. A reader that stalls often is ahead of the
+ * scanner, so scanning is the bottleneck; a scanner that stalls often is
+ * waiting for the disk.
+ *
+ * Each side updates only its own fields, and the totals are complete once
+ * the pipeline has been closed.
+ *
+ * @version 1.0
+ * @see implementations.ReadAheadReader
+ */
+public class PipelineStats {
+    private volatile long bytesRead;
+    private volatile int buffersRead;
+    private volatile long readerStallNanos;
+    private volatile long scannerStallNanos;
+
+    /**
+     * Records a buffer filled by the reader.
+     *
+     * @param bytes the number of bytes read into it
+     */
+    void addBuffer(int bytes) {
+        bytesRead += bytes;
+        buffersRead++;
+    }
+
+    /**
+     * Records time the reader spent waiting for the scanner to free a buffer.
+     *
+     * @param nanos the time waited, in nanoseconds
+     */
+    void addReaderStall(long nanos) {
+        readerStallNanos += nanos;
+    }
+
+    /**
+     * Records time the scanner spent waiting for the reader to fill a buffer.
+     *
+     * @param nanos the time waited, in nanoseconds
+     */
+    void addScannerStall(long nanos) {
+        scannerStallNanos += nanos;
+    }
+
+    /**
+     * Returns the number of bytes the reader has read.
+     *
+     * @return the bytes read so far
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Returns the number of buffers the reader has filled.
+     *
+     * @return the buffers filled so far
+     */
+    public int getBuffersRead() {
+        return buffersRead;
+    }
+
+    /**
+     * Returns the time the reader spent waiting for the scanner to free a buffer.
+     *
+     * @return the time waited, in nanoseconds
+     */
+    public long getReaderStallNanos() {
+        return readerStallNanos;
+    }
+
+    /**
+     * Returns the time the scanner spent waiting for the reader to fill a buffer.
+     *
+     * @return the time waited, in nanoseconds
+     */
+    public long getScannerStallNanos() {
+        return scannerStallNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Read " + bytesRead + " bytes in " + buffersRead + " buffers; reader stalled "
+                + readerStallNanos / 1000000 + " ms, scanner stalled " + scannerStallNanos / 1000000 + " ms";
+    }
+}
@@ -0,0 +1,179 @@
+package implementations;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a file ahead of its scanner on a dedicated thread, so the disk and
+ * the CPU work at the same time. A fixed set of buffers goes round between
+ * the two threads: the reader fills a free buffer and hands it over, and the
+ * scanner hands it back once it has been scanned. When every buffer is full
+ * the reader waits, so memory use is bounded by the buffers.
+ *
+ * The channel may also be a stream, such as a gzip file being decompressed,
+ * so the decompression runs on the reader thread, apart from the scanning.
+ *
+ * The time each side spends waiting for the other is added to a PipelineStats.
+ *
+ * @version 1.0
+ * @see implementations.PipelineStats
+ */
+public class ReadAheadReader implements Closeable {
+    /** Size of each buffer by default */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    /** Number of buffers by default */
+    public static final int DEFAULT_BUFFER_COUNT = 4;
+
+    // Handed to the scanner after the last buffer
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final ReadableByteChannel channel;
+    private final PipelineStats stats;
+    private final BlockingQueue<ByteBuffer> free;
+    private final BlockingQueue<ByteBuffer> filled;
+    private final Thread thread;
+    private volatile IOException failure;
+    private boolean started;
+    private boolean ended;
+
+    /**
+     * Constructs a reader for a channel, with its buffers.
+     * Nothing is read until start() is called. A FileChannel is read from
+     * its start with positional reads; any other channel is read from where
+     * it is.
+     *
+     * @param channel the channel to read to its end
+     * @param bufferSize the size of each buffer
+     * @param bufferCount the number of buffers, at least 2 for reading to overlap scanning
+     * @param stats the timings to add to
+     */
+    public ReadAheadReader(ReadableByteChannel channel, int bufferSize, int bufferCount, PipelineStats stats) {
+        if (bufferSize < 1 || bufferCount < 1) {
+            throw new IllegalArgumentException("Buffer size and count must be positive: "
+                    + bufferSize + ", " + bufferCount);
+        }
+        this.channel = channel;
+        this.stats = stats;
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        // one more place for END, so handing it over never waits
+        this.filled = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        this.thread = new Thread(this::readAll, "read-ahead");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts reading on the reader thread.
+     */
+    public void start() {
+        started = true;
+        thread.start();
+    }
+
+    /**
+     * Returns the next filled buffer, waiting for the reader if it has none ready.
+     * The buffer's position and limit frame the bytes read into it, and it
+     * must be handed back with recycle() once it has been scanned.
+     *
+     * @return the next buffer, or null at the end of the file
+     * @throws IOException if the reader failed or the wait was interrupted
+     */
+    public ByteBuffer take() throws IOException {
+        if (ended) {
+            return null;
+        }
+        ByteBuffer buffer;
+        long start = System.nanoTime();
+        try {
+            buffer = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the reader");
+        }
+        stats.addScannerStall(System.nanoTime() - start);
+        if (buffer == END) {
+            ended = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return null;
+        }
+        return buffer;
+    }
+
+    /**
+     * Hands a scanned buffer back to the reader.
+     *
+     * @param buffer a buffer returned by take()
+     */
+    public void recycle(ByteBuffer buffer) {
+        free.add(buffer);
+    }
+
+    /**
+     * Stops the reader thread, if it is still running, and waits for it.
+     * The channel is left open.
+     */
+    @Override
+    public void close() {
+        if (!started) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Reads the next bytes, which in a file are at the given offset
+    private int read(ByteBuffer buffer, long position) throws IOException {
+        if (channel instanceof FileChannel) {
+            return ((FileChannel) channel).read(buffer, position);
+        }
+        return channel.read(buffer);
+    }
+
+    // Runs on the reader thread: fills free buffers in file order until the end
+    private void readAll() {
+        long position = 0;
+        try {
+            boolean atEnd = false;
+            while (!atEnd) {
+                long start = System.nanoTime();
+                ByteBuffer buffer = free.take();
+                stats.addReaderStall(System.nanoTime() - start);
+
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    int count = read(buffer, position);
+                    if (count < 0) {
+                        atEnd = true;
+                        break;
+                    }
+                    position += count;
+                }
+                buffer.flip();
+                if (buffer.hasRemaining()) {
+                    stats.addBuffer(buffer.remaining());
+                    filled.put(buffer);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // closed before the end of the file
+        } finally {
+            filled.offer(END);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package implementations;
+
+/**
+ * Receives the results of validation as they are found, to print them in
+ * some format. For each document a sink gets startDocument(), then error()
+ * once for each error in the order reported, then endDocument(). When every
+ * document is done, finish() completes and flushes the output.
+ *
+ * A sink is used by one thread at a time.
+ *
+ * @version 1.0
+ * @see implementations.ValidationReport
+ */
+public interface ReportSink {
+    /**
+     * Called before the first error of a document.
+     *
+     * @param filePath the path of the document
+     */
+    void startDocument(String filePath);
+
+    /**
+     * Called once for each error, as it is reported.
+     *
+     * @param error the error
+     */
+    void error(ValidationError error);
+
+    /**
+     * Called once the document has been validated, or could not be read.
+     *
+     * @param report the complete report for the document
+     */
+    void endDocument(ValidationReport report);
+
+    /**
+     * Writes whatever ends the output and flushes it.
+     * The stream or writer underneath is not closed.
+     */
+    void finish();
+}
@@ -0,0 +1,147 @@
+package implementations;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.Writer;
+
+/**
+ * Prints results as a single SARIF 2.1.0 log, the format read by code
+ * scanning tools. Every document is part of one run; each error is a result
+ * located in its document, with the error's kind as its rule. Documents that
+ * could not be read, and errors past the parser's error limit, are listed as
+ * notifications of the run's invocation.
+ *
+ * Results are written as they are reported. The log is only complete once
+ * finish() has been called.
+ *
+ * @version 1.0
+ * @see implementations.ReportSink
+ */
+public class SarifReportSink extends BufferedReportSink {
+    private static final String SCHEMA = "https://json.schemastore.org/sarif-2.1.0.json";
+
+    private boolean started;
+    private int resultCount;
+    private String currentUri;
+    private boolean hasFileErrors;
+    // Notifications for dropped errors and unreadable documents, already as JSON
+    private MyArrayList<String> notifications;
+
+    /**
+     * Constructs a SARIF sink that writes to a print stream.
+     *
+     * @param output the stream to write to
+     */
+    public SarifReportSink(PrintStream output) {
+        super(output);
+        notifications = new MyArrayList<>();
+    }
+
+    /**
+     * Constructs a SARIF sink that writes to a writer.
+     *
+     * @param writer the writer to write to
+     */
+    public SarifReportSink(Writer writer) {
+        super(writer);
+        notifications = new MyArrayList<>();
+    }
+
+    @Override
+    public void startDocument(String filePath) {
+        start();
+        currentUri = JsonReportSink.quote(filePath.replace(File.separatorChar, '/'));
+    }
+
+    @Override
+    public void error(ValidationError error) {
+        if (resultCount > 0) {
+            out.print(',');
+        }
+        resultCount++;
+        out.print("{\"ruleId\":\"");
+        out.print(error.getKind().name());
+        out.print("\",\"level\":\"error\",\"message\":{\"text\":");
+        out.print(JsonReportSink.quote(error.getMessage()));
+        out.print("},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":");
+        out.print(currentUri);
+        out.print("},\"region\":{\"startLine\":");
+        out.print(error.getLine());
+        out.print(",\"startColumn\":");
+        out.print(error.getColumn());
+        if (error.getOffset() >= 0) {
+            out.print(",\"byteOffset\":");
+            out.print(error.getOffset());
+        }
+        out.print(",\"snippet\":{\"text\":");
+        out.print(JsonReportSink.quote(error.getTag()));
+        out.print("}}}}]}");
+    }
+
+    @Override
+    public void endDocument(ValidationReport report) {
+        ErrorSummary dropped = report.getDroppedErrors();
+        if (dropped.getTotal() > 0) {
+            StringBuilder text = new StringBuilder();
+            text.append(dropped.getTotal()).append(" more errors not shown:");
+            for (int i = 0; i < dropped.size(); i++) {
+                text.append(i == 0 ? " " : ", ").append(dropped.getName(i)).append(": ")
+                        .append(dropped.getCount(i)).append(" on lines ")
+                        .append(dropped.getFirstLine(i)).append('-').append(dropped.getLastLine(i));
+            }
+            notifications.add("{\"level\":\"warning\",\"message\":{\"text\":"
+                    + JsonReportSink.quote(text.toString())
+                    + "},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":"
+                    + currentUri + "}}}]}");
+        }
+        if (report.getFileError() != null) {
+            notifications.add("{\"level\":\"error\",\"message\":{\"text\":"
+                    + JsonReportSink.quote("File error: " + report.getFileError())
+                    + "},\"locations\":[{\"physicalLocation\":{\"artifactLocation\":{\"uri\":"
+                    + currentUri + "}}}]}");
+            hasFileErrors = true;
+        }
+    }
+
+    /**
+     * Closes the results and writes the invocation, then flushes the log.
+     */
+    @Override
+    public void finish() {
+        start();
+        out.print("],\"invocations\":[{\"executionSuccessful\":");
+        out.print(!hasFileErrors);
+        out.print(",\"toolExecutionNotifications\":[");
+        for (int i = 0; i < notifications.size(); i++) {
+            if (i > 0) {
+                out.print(',');
+            }
+            out.print(notifications.get(i));
+        }
+        out.println("]}]}]}");
+        out.flush();
+        started = false;
+        hasFileErrors = false;
+        resultCount = 0;
+        notifications.clear();
+    }
+
+    // Writes everything before the first result, once
+    private void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        out.print("{\"version\":\"2.1.0\",\"$schema\":\"" + SCHEMA + "\",\"runs\":[{\"tool\":{\"driver\":{");
+        out.print("\"name\":\"XMLParser\",\"rules\":[");
+        ValidationError.Kind[] kinds = ValidationError.Kind.values();
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0) {
+                out.print(',');
+            }
+            out.print("{\"id\":\"" + kinds[i].name() + "\",\"shortDescription\":{\"text\":"
+                    + JsonReportSink.quote(kinds[i].getDescription()) + "}}");
+        }
+        out.print("]}},\"results\":[");
+    }
+}
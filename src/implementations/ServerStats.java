@@ -0,0 +1,129 @@
+package implementations;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Throughput and latency of a ValidationServer since it started.
+ * Latencies are also counted in buckets by their power of two in
+ * microseconds, so percentiles can be estimated in fixed memory however
+ * many requests are served. An estimate is the upper bound of its bucket,
+ * so it is at most twice the true value.
+ *
+ * Request threads update the counts without locking, and a snapshot read
+ * while requests are running may be a few requests behind.
+ *
+ * @version 1.0
+ * @see implementations.ValidationServer
+ */
+public class ServerStats {
+    // Buckets of latencies below 2^i microseconds; the last one holds the rest
+    private static final int BUCKET_COUNT = 40;
+
+    private final long startNanos;
+    private final LongAdder requests;
+    private final LongAdder failedRequests;
+    private final LongAdder totalLatencyNanos;
+    private final AtomicLong maxLatencyNanos;
+    private final AtomicLongArray buckets;
+
+    /**
+     * Constructs empty stats, starting the clock for throughput.
+     */
+    public ServerStats() {
+        startNanos = System.nanoTime();
+        requests = new LongAdder();
+        failedRequests = new LongAdder();
+        totalLatencyNanos = new LongAdder();
+        maxLatencyNanos = new AtomicLong();
+        buckets = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    /**
+     * Records a request that has been answered.
+     *
+     * @param latencyNanos the time from receiving the request to answering it
+     * @param failed true if no document could be validated for the request
+     */
+    void addRequest(long latencyNanos, boolean failed) {
+        requests.increment();
+        if (failed) {
+            failedRequests.increment();
+        }
+        totalLatencyNanos.add(latencyNanos);
+        maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+        long micros = latencyNanos / 1000;
+        int bucket = Math.min(BUCKET_COUNT - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public long getFailedRequestCount() {
+        return failedRequests.sum();
+    }
+
+    public long getUptimeNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    /**
+     * Returns the mean latency of the requests answered so far.
+     *
+     * @return the mean latency in nanoseconds, or 0 before the first request
+     */
+    public long getMeanLatencyNanos() {
+        long count = requests.sum();
+        return count == 0 ? 0 : totalLatencyNanos.sum() / count;
+    }
+
+    /**
+     * Returns the number of requests answered per second since the start.
+     *
+     * @return the mean throughput in requests per second
+     */
+    public double getThroughput() {
+        return getRequestCount() / (getUptimeNanos() / 1e9);
+    }
+
+    /**
+     * Estimates the latency that the given fraction of requests did not exceed.
+     *
+     * @param fraction the fraction of requests, such as 0.99
+     * @return the upper bound of the bucket holding that request, in
+     *         nanoseconds, or 0 before the first request
+     */
+    public long getLatencyPercentileNanos(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min((1L << i) * 1000, getMaxLatencyNanos());
+            }
+        }
+        return getMaxLatencyNanos();
+    }
+
+    @Override
+    public String toString() {
+        return "Served " + getRequestCount() + " requests (" + getFailedRequestCount() + " failed) at "
+                + String.format("%.1f", getThroughput()) + "/s; latency mean "
+                + getMeanLatencyNanos() / 1000 + " us, p99 " + getLatencyPercentileNanos(0.99) / 1000
+                + " us, max " + getMaxLatencyNanos() / 1000 + " us";
+    }
+}
@@ -0,0 +1,137 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Answers only whether a document is valid, as fast as possible.
+ * The parser marks a document as having errors exactly when an end tag does
+ * not close the start tag on top of its stack, so this checker keeps nothing
+ * but a stack of name ids and stops at the first such end tag. It creates no
+ * TagEntry objects, uses no error queues and keeps no tag text.
+ *
+ * The verdict is always the same as the one the full parse gives, so the full
+ * parse is only needed to find out what the errors are.
+ *
+ * @version 1.0
+ * @see implementations.ParseContext
+ */
+public class StructureChecker implements TagLexer.TagHandler {
+    private static final int DEFAULT_CAPACITY = 32;
+    // Bytes read at a time; a fault is noticed at the end of the block it is in
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private SymbolTable symbols;
+    private int[] nameIds;
+    private int depth;
+    private boolean fault;
+    private ByteBuffer buffer;
+    private char[] chars;
+
+    /**
+     * Constructs a new StructureChecker.
+     *
+     * @param symbols the table tag names are interned in, which may be shared
+     */
+    public StructureChecker(SymbolTable symbols) {
+        this.symbols = symbols;
+        nameIds = new int[DEFAULT_CAPACITY];
+        depth = 0;
+        fault = false;
+    }
+
+    /**
+     * Reads a whole document from a channel, stopping at the first fault.
+     * The channel must hold an ASCII compatible encoding, such as UTF-8.
+     *
+     * @param channel the channel to read the document from
+     * @param lexer the lexer to find tags with, which is reset first
+     * @return true if the document has errors
+     * @throws IOException if the channel cannot be read
+     */
+    public boolean check(ReadableByteChannel channel, TagLexer lexer) throws IOException {
+        reset();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        }
+        lexer.reset(Charset.defaultCharset());
+        while (!fault) {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+            buffer.flip();
+            lexer.scan(buffer, this);
+        }
+        return fault;
+    }
+
+    /**
+     * Reads a whole document from a Reader, stopping at the first fault.
+     * This is for documents that cannot be scanned as bytes, such as UTF-16.
+     *
+     * @param reader the reader to read the decoded document from
+     * @param lexer the lexer to find tags with, which is reset first
+     * @return true if the document has errors
+     * @throws IOException if the reader cannot be read
+     */
+    public boolean check(Reader reader, TagLexer lexer) throws IOException {
+        reset();
+        if (chars == null) {
+            chars = new char[BLOCK_SIZE];
+        }
+        lexer.reset(Charset.defaultCharset());
+        int count;
+        while (!fault && (count = reader.read(chars)) >= 0) {
+            lexer.scan(chars, 0, count, this);
+        }
+        return fault;
+    }
+
+    /**
+     * Empties the stack and clears the fault, for a new document.
+     */
+    public void reset() {
+        depth = 0;
+        fault = false;
+    }
+
+    /**
+     * Returns whether an end tag has failed to close the tag on top of the stack.
+     *
+     * @return true if the document has errors
+     */
+    public boolean hasFault() {
+        return fault;
+    }
+
+    /**
+     * Pushes start tags and pops them with their end tags, until the first
+     * end tag that does not match. Self-closing tags are ignored.
+     *
+     * @param lexer the lexer holding the current tag
+     * @param type the tag type, one of the TagLexer tag type constants
+     */
+    @Override
+    public void handleTag(TagLexer lexer, int type) {
+        if (fault || type == TagLexer.SELF_CLOSING_TAG) {
+            return;
+        }
+        int nameId = lexer.getNameId(symbols);
+        if (type == TagLexer.START_TAG) {
+            if (depth == nameIds.length) {
+                int[] larger = new int[nameIds.length * 2];
+                System.arraycopy(nameIds, 0, larger, 0, depth);
+                nameIds = larger;
+            }
+            nameIds[depth++] = nameId;
+        } else if (depth > 0 && nameIds[depth - 1] == nameId) {
+            depth--;
+        } else {
+            fault = true;
+        }
+    }
+}
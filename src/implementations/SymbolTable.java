@@ -0,0 +1,178 @@
+package implementations;
+
+/**
+ * Maps tag names to small int ids, so tags can be matched by comparing ints
+ * instead of Strings. A name is looked up straight from the lexer's character
+ * buffer, so nothing is allocated unless the name has never been seen before.
+ *
+ * The table only ever grows and can be shared by every document a parser
+ * validates, from any number of threads. Lookups of known names take no lock;
+ * adding a new name is synchronized.
+ *
+ * @version 1.0
+ * @see implementations.TagLexer
+ */
+public class SymbolTable {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Open addressing table, always less than half full; replaced when it grows
+    private volatile Symbol[] table;
+    // Names indexed by id; replaced when it grows
+    private volatile String[] names;
+    private int size;
+
+    /**
+     * An interned name. Its fields are final so a symbol is safely visible
+     * to threads that find it in the table without taking the lock.
+     */
+    private static final class Symbol {
+        private final String name;
+        private final int hash;
+        private final int id;
+
+        private Symbol(String name, int hash, int id) {
+            this.name = name;
+            this.hash = hash;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Constructs an empty symbol table.
+     */
+    public SymbolTable() {
+        table = new Symbol[DEFAULT_CAPACITY];
+        names = new String[DEFAULT_CAPACITY / 2];
+        size = 0;
+    }
+
+    /**
+     * Returns the id of a name, adding the name if it is new.
+     *
+     * @param chars the buffer holding the name
+     * @param length the number of characters in the name
+     * @param hash the hash of the name, computed as String.hashCode() would
+     * @return the id of the name, from 0 to size() - 1
+     */
+    public int intern(char[] chars, int length, int hash) {
+        int id = find(table, chars, length, hash);
+        if (id >= 0) {
+            return id;
+        }
+        return add(chars, length, hash);
+    }
+
+    /**
+     * Returns the id of a name, adding the name if it is new.
+     *
+     * @param name the name
+     * @return the id of the name, from 0 to size() - 1
+     */
+    public int intern(String name) {
+        char[] chars = name.toCharArray();
+        return intern(chars, chars.length, name.hashCode());
+    }
+
+    /**
+     * Returns the name with the given id.
+     *
+     * @param id an id returned by intern()
+     * @return the name, always the same String instance for the same id
+     */
+    public String getName(int id) {
+        String[] current = names;
+        if (id < current.length && current[id] != null) {
+            return current[id];
+        }
+        // added by another thread and not yet visible to this one
+        synchronized (this) {
+            return names[id];
+        }
+    }
+
+    /**
+     * Returns the number of names in the table.
+     *
+     * @return the number of distinct names interned so far
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    // Adds a name under the lock, unless another thread added it first
+    private synchronized int add(char[] chars, int length, int hash) {
+        Symbol[] current = table;
+        int id = find(current, chars, length, hash);
+        if (id >= 0) {
+            return id;
+        }
+
+        if ((size + 1) * 2 > current.length) {
+            current = rehash(current, current.length * 2);
+        }
+        if (size == names.length) {
+            String[] larger = new String[names.length * 2];
+            System.arraycopy(names, 0, larger, 0, size);
+            names = larger;
+        }
+
+        Symbol symbol = new Symbol(new String(chars, 0, length), hash, size);
+        names[size] = symbol.name;
+        int mask = current.length - 1;
+        int index = mix(hash) & mask;
+        while (current[index] != null) {
+            index = (index + 1) & mask;
+        }
+        current[index] = symbol;
+        table = current;
+        return size++;
+    }
+
+    // Looks a name up in the given table, returning its id or -1
+    private static int find(Symbol[] table, char[] chars, int length, int hash) {
+        int mask = table.length - 1;
+        int index = mix(hash) & mask;
+        Symbol symbol;
+        while ((symbol = table[index]) != null) {
+            if (symbol.hash == hash && matches(symbol.name, chars, length)) {
+                return symbol.id;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String name, char[] chars, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Copies every symbol into a new, larger table
+    private static Symbol[] rehash(Symbol[] table, int capacity) {
+        Symbol[] larger = new Symbol[capacity];
+        int mask = capacity - 1;
+        for (Symbol symbol : table) {
+            if (symbol != null) {
+                int index = mix(symbol.hash) & mask;
+                while (larger[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                larger[index] = symbol;
+            }
+        }
+        return larger;
+    }
+
+    // Spreads the bits of String.hashCode(), which are poor for short names
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
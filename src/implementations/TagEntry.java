@@ -0,0 +1,95 @@
+package implementations;
+
+/**
+ * Represents an XML tag entry with its full text, name, line number and column.
+ * The name is also kept as its id in the parser's SymbolTable, so entries
+ * can be matched by comparing ints. The full text is either kept as given,
+ * or read back from a TagTextSource when it is asked for, in which case its
+ * byte offset in the source is known too.
+ * 
+ * @version 1.0
+ */
+public class TagEntry {
+    private String fullTag;
+    private TagTextSource source;
+    private long offset;
+    private int length;
+    private String name;
+    private int nameId;
+    private int lineNo;
+    private int column;
+    private boolean endTag;
+    
+    /**
+     * Constructs a new TagEntry with the specified parameters.
+     * 
+     * @param fullTag the complete text of the XML tag
+     * @param tagName the name of the XML tag
+     * @param nameId the id of the name in the parser's SymbolTable
+     * @param lineNo the line number where the tag appears
+     * @param column the column where the tag starts in its line
+     * @param endTag true for an end tag, false for a start tag
+     */
+    public TagEntry(String fullTag, String tagName, int nameId, int lineNo, int column, boolean endTag) {
+        this.fullTag = fullTag;
+        this.offset = -1;
+        this.name = tagName;
+        this.nameId = nameId;
+        this.lineNo = lineNo;
+        this.column = column;
+        this.endTag = endTag;
+    }
+    
+    /**
+     * Constructs a new TagEntry whose text is read from its source when needed.
+     * 
+     * @param source the source the text of the tag is read from
+     * @param offset the byte offset of the tag in the source
+     * @param length the length of the tag in bytes
+     * @param tagName the name of the XML tag
+     * @param nameId the id of the name in the parser's SymbolTable
+     * @param lineNo the line number where the tag appears
+     * @param column the column where the tag starts in its line
+     * @param endTag true for an end tag, false for a start tag
+     */
+    public TagEntry(TagTextSource source, long offset, int length, String tagName, int nameId, int lineNo,
+            int column, boolean endTag) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.name = tagName;
+        this.nameId = nameId;
+        this.lineNo = lineNo;
+        this.column = column;
+        this.endTag = endTag;
+    }
+    public String getFullTag() {
+        if (fullTag == null && source != null) {
+            return source.getText(offset, length);
+        }
+        return fullTag;
+    }
+    public String getName() {
+        return name;
+    }
+    public int getNameId() {
+        return nameId;
+    }
+    public int getLineNo() {
+        return lineNo;
+    }
+    public int getColumn() {
+        return column;
+    }
+    /**
+     * Returns the byte offset of the tag in its source.
+     * 
+     * @return the offset, or -1 if the entry was made from text alone
+     */
+    public long getOffset() {
+        return offset;
+    }
+    public boolean isEndTag() {
+        return endTag;
+    }
+}
@@ -0,0 +1,718 @@
+package implementations;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * Hand-written state machine that finds XML tags in text.
+ * A tag is what the pattern {@code <\s*\/?([a-zA-Z0-9]+)([^>]*)\s*\/?>}
+ * that the parser used to compile for every line matches, except that a '>'
+ * inside a quoted attribute value does not end the tag. The lexer looks at
+ * each character only once and reuses its own buffers, so no objects are
+ * created per tag.
+ * 
+ * Comments, CDATA sections, processing instructions and declarations such as
+ * DOCTYPE are recognized and skipped to their terminators, so nothing that
+ * looks like a tag inside them is reported. Unlike tags, they may span any
+ * number of lines. A tag, quoted values included, still never spans two lines.
+ * 
+ * The lexer can also scan raw bytes of an ASCII compatible encoding, such as
+ * UTF-8, in any number of buffers. It then counts lines itself and keeps its
+ * state from one buffer to the next, so a tag may span two buffers. It also
+ * reports the byte offset of each tag, so the tag's text can be read again
+ * from the source later instead of being kept. Text between tags, and the
+ * content of comments, CDATA sections and processing instructions, is
+ * skipped eight bytes at a time with a DelimiterScanner. Characters decoded from a
+ * Reader can be scanned the same way, in blocks of any size.
+ *
+ * The lexer's buffers never grow past MAX_TEXT_LENGTH characters, whatever
+ * the length of a line or tag. Only the first MAX_TEXT_LENGTH characters of a
+ * longer tag are kept, and names are told apart by that many characters.
+ *
+ * @version 1.0
+ * @see implementations.XMLParser
+ */
+public class TagLexer {
+    /** Type of a start tag, such as {@code <a>} */
+    public static final int START_TAG = 1;
+    /** Type of an end tag, such as {@code </a>} */
+    public static final int END_TAG = 2;
+    /** Type of a self-closing tag, such as {@code <a/>} */
+    public static final int SELF_CLOSING_TAG = 3;
+    /** Most characters of a tag's text, or of its name, the lexer keeps */
+    public static final int MAX_TEXT_LENGTH = 1 << 20;
+
+    // States of the machine
+    private static final int TEXT = 0;        // outside of any tag
+    private static final int OPEN = 1;        // after '<' and any whitespace
+    private static final int SLASH = 2;       // after the optional '/'
+    private static final int NAME = 3;        // inside the tag name
+    private static final int ATTRIBUTES = 4;  // after the name, waiting for '>'
+    private static final int QUOTED = 5;      // inside a quoted attribute value
+    private static final int BANG = 6;        // after "<!", telling a comment from CDATA or a declaration
+    private static final int COMMENT = 7;     // inside "<!--", waiting for "-->"
+    private static final int CDATA = 8;       // inside "<![CDATA[", waiting for "]]>"
+    private static final int PI = 9;          // inside "<?", waiting for "?>"
+    private static final int DECLARATION = 10; // inside another "<!", such as DOCTYPE, waiting for '>'
+
+    // Byte that may end each state from COMMENT on, or -1 for a declaration
+    private static final int[] SKIP_DELIMITERS = { '-', ']', '?', -1 };
+
+    private static final String COMMENT_START = "--";
+    private static final String CDATA_START = "[CDATA[";
+
+    private int state;
+    // Characters of a start or end sequence matched so far, such as the dashes of "-->"
+    private int run;
+    // Quote that ends the current value, or 0 outside of one
+    private char quote;
+    // Depth of '[' in a declaration, such as the internal subset of a DOCTYPE
+    private int depth;
+    // Whether the characters after "<!" are matched against the start of a comment or of CDATA
+    private boolean matchingComment;
+    private boolean endTag;
+    private int lineNumber;
+    private boolean afterCarriageReturn;
+    private boolean byteInput;
+    private boolean skipText;
+    private Charset charset;
+    private long position;
+    private long lastOpenOffset;
+    private long tagOffset;
+    private long lineStartOffset;
+
+    private char[] name;
+    private int nameLength;
+    private int nameHash;
+    private char[] text;
+    private int textLength;
+    private char lastChar;
+
+    /**
+     * Receives every tag found by the lexer.
+     * The tag's text and name are only valid until the handler returns.
+     */
+    public interface TagHandler {
+        /**
+         * Called once for each complete tag.
+         *
+         * @param lexer the lexer holding the current tag
+         * @param type one of START_TAG, END_TAG or SELF_CLOSING_TAG
+         */
+        void handleTag(TagLexer lexer, int type);
+    }
+
+    /**
+     * Constructs a new TagLexer with small reusable buffers.
+     */
+    public TagLexer() {
+        name = new char[16];
+        text = new char[64];
+        state = TEXT;
+        charset = Charset.defaultCharset();
+        skipText = true;
+    }
+
+    /**
+     * Sets whether text between tags is skipped with a DelimiterScanner when
+     * scanning bytes, eight bytes at a time, or looked at one byte at a time.
+     * Both find the same tags; skipping is on by default.
+     *
+     * @param skipText true to skip text with a DelimiterScanner
+     */
+    public void setTextSkipping(boolean skipText) {
+        this.skipText = skipText;
+    }
+
+    /**
+     * Prepares the lexer to scan a new document from its first line and byte.
+     * 
+     * @param charset the encoding used to decode tag text when scanning bytes
+     */
+    public void reset(Charset charset) {
+        reset(charset, 0);
+    }
+
+    /**
+     * Prepares the lexer to scan a document from the start of a line inside
+     * it, as if the lines before had been scanned. Lines and offsets are
+     * counted from that line.
+     * 
+     * @param charset the encoding used to decode tag text when scanning bytes
+     * @param markupContext the markup context at the end of the line before,
+     *                      as returned by getMarkupContext(), or 0 for none
+     */
+    public void reset(Charset charset, long markupContext) {
+        this.charset = charset;
+        clearState();
+        state = (int) (markupContext & 0xFF);
+        quote = (char) ((markupContext >>> 8) & 0xFFFF);
+        depth = (int) (markupContext >>> 24);
+        lineNumber = 1;
+        afterCarriageReturn = false;
+        position = 0;
+        lineStartOffset = 0;
+    }
+
+    /**
+     * Returns the comment, CDATA section, processing instruction or declaration
+     * that the lexer is inside. At the end of a line, this is all the lexer
+     * carries over to the next line, apart from the count of lines, so a
+     * document may be scanned from any line given the context before it.
+     *
+     * @return the markup context, or 0 outside of any of them
+     */
+    public long getMarkupContext() {
+        if (state < COMMENT) {
+            return 0;
+        }
+        return state | (long) quote << 8 | (long) depth << 24;
+    }
+
+    /**
+     * Scans a single line and reports each tag it contains, in order.
+     * A tag that is not closed by the end of the line is not a tag, and the
+     * line is scanned on its own: a comment or other markup left open at its
+     * end is closed with it.
+     *
+     * The parsers scan whole blocks with scan() and never a single line.
+     * This is kept for LexerBenchmark and TagLexerTest, which compare the
+     * lexer line by line with the regular expression it replaced.
+     *
+     * @param line the line of text to scan, without its line terminator
+     * @param lineNumber the line number reported for the tags in this line
+     * @param handler the handler that receives each tag
+     */
+    public void scanLine(CharSequence line, int lineNumber, TagHandler handler) {
+        this.lineNumber = lineNumber;
+        byteInput = false;
+        clearState();
+        lineStartOffset = 0;
+        int length = line.length();
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c == '<') {
+                lastOpenOffset = i;
+            }
+            step(c, handler);
+        }
+        clearState();
+    }
+
+    /**
+     * Scans the remaining bytes of a buffer and reports each tag completed in it.
+     * Line terminators ("\n", "\r" or "\r\n") are counted the same way as
+     * BufferedReader.readLine() counts lines, and a tag never spans two lines,
+     * though a comment or other markup may.
+     * The position of the buffer is not changed.
+     * 
+     * @param buffer the bytes to scan
+     * @param handler the handler that receives each tag
+     */
+    public void scan(ByteBuffer buffer, TagHandler handler) {
+        if (buffer.hasArray()) {
+            scan(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), handler);
+            return;
+        }
+        byteInput = true;
+        int start = buffer.position();
+        int limit = buffer.limit();
+        long base = position - start;
+        for (int i = start; i < limit; i++) {
+            int delimiter = skipText ? skipDelimiter() : -1;
+            if (delimiter >= 0) {
+                int next = DelimiterScanner.indexOfDelimiter(buffer, i, limit, (byte) delimiter);
+                if (next > i) {
+                    afterCarriageReturn = false;
+                    i = next;
+                    if (i == limit) {
+                        break;
+                    }
+                }
+            }
+            char c = (char) (buffer.get(i) & 0xFF);
+            if (c == '<') {
+                lastOpenOffset = base + i;
+            }
+            if (c == '\n') {
+                if (!afterCarriageReturn) {
+                    lineNumber++;
+                }
+                afterCarriageReturn = false;
+                lineStartOffset = base + i + 1;
+                endLine();
+            } else if (c == '\r') {
+                lineNumber++;
+                afterCarriageReturn = true;
+                lineStartOffset = base + i + 1;
+                endLine();
+            } else {
+                afterCarriageReturn = false;
+                if (state != TEXT || c == '<') {
+                    step(c, handler);
+                }
+            }
+        }
+        position += limit - start;
+    }
+
+    /**
+     * Scans a block of bytes and reports each tag completed in it, exactly as
+     * scan(ByteBuffer, TagHandler) scans the same bytes in a buffer.
+     *
+     * @param bytes the array holding the bytes
+     * @param offset the index of the first byte to scan
+     * @param length the number of bytes to scan
+     * @param handler the handler that receives each tag
+     */
+    public void scan(byte[] bytes, int offset, int length, TagHandler handler) {
+        byteInput = true;
+        int limit = offset + length;
+        long base = position - offset;
+        ByteBuffer words = skipText ? ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN) : null;
+        for (int i = offset; i < limit; i++) {
+            int delimiter = words != null ? skipDelimiter() : -1;
+            if (delimiter >= 0) {
+                int next = DelimiterScanner.indexOfDelimiter(words, i, limit, (byte) delimiter);
+                if (next > i) {
+                    afterCarriageReturn = false;
+                    i = next;
+                    if (i == limit) {
+                        break;
+                    }
+                }
+            }
+            char c = (char) (bytes[i] & 0xFF);
+            if (c == '<') {
+                lastOpenOffset = base + i;
+            }
+            if (c == '\n') {
+                if (!afterCarriageReturn) {
+                    lineNumber++;
+                }
+                afterCarriageReturn = false;
+                lineStartOffset = base + i + 1;
+                endLine();
+            } else if (c == '\r') {
+                lineNumber++;
+                afterCarriageReturn = true;
+                lineStartOffset = base + i + 1;
+                endLine();
+            } else {
+                afterCarriageReturn = false;
+                if (state != TEXT || c == '<') {
+                    step(c, handler);
+                }
+            }
+        }
+        position += length;
+    }
+
+    /**
+     * Scans a block of characters and reports each tag completed in it.
+     * Like scan(ByteBuffer, TagHandler), it counts lines the same way as
+     * BufferedReader.readLine() and keeps its state from one block to the
+     * next, so any number of blocks of any size give the same tags as
+     * scanning the text one line at a time. Offsets count characters.
+     *
+     * @param chars the buffer holding the characters
+     * @param offset the index of the first character to scan
+     * @param length the number of characters to scan
+     * @param handler the handler that receives each tag
+     */
+    public void scan(char[] chars, int offset, int length, TagHandler handler) {
+        byteInput = false;
+        int limit = offset + length;
+        long base = position - offset;
+        for (int i = offset; i < limit; i++) {
+            char c = chars[i];
+            if (c == '<') {
+                lastOpenOffset = base + i;
+            }
+            if (c == '\n') {
+                if (!afterCarriageReturn) {
+                    lineNumber++;
+                }
+                afterCarriageReturn = false;
+                lineStartOffset = base + i + 1;
+                endLine();
+            } else if (c == '\r') {
+                lineNumber++;
+                afterCarriageReturn = true;
+                lineStartOffset = base + i + 1;
+                endLine();
+            } else {
+                afterCarriageReturn = false;
+                if (state != TEXT || c == '<') {
+                    step(c, handler);
+                }
+            }
+        }
+        position += length;
+    }
+
+    /**
+     * Advances the state machine by one character.
+     * When scanning bytes, every byte is passed as a character from 0 to 255.
+     *
+     * @param c the next character
+     * @param handler the handler that receives a completed tag
+     */
+    private void step(char c, TagHandler handler) {
+        switch (state) {
+            case TEXT:
+                if (c == '<') {
+                    begin();
+                }
+                break;
+            case OPEN:
+                stepOpen(c);
+                break;
+            case SLASH:
+                startName(c);
+                break;
+            case NAME:
+                if (isNameChar(c)) {
+                    appendName(c);
+                    append(c);
+                } else if (c == '>') {
+                    finish(handler);
+                } else {
+                    append(c);
+                    state = ATTRIBUTES;
+                    startQuote(c);
+                }
+                break;
+            case ATTRIBUTES:
+                if (c == '>') {
+                    finish(handler);
+                } else {
+                    append(c);
+                    startQuote(c);
+                }
+                break;
+            case QUOTED:
+                // a '>' in a quoted value does not end the tag
+                append(c);
+                if (c == quote) {
+                    quote = 0;
+                    state = ATTRIBUTES;
+                }
+                break;
+            default:
+                stepMarkup(c);
+                break;
+        }
+    }
+
+    // Tells a tag from a comment or other markup after '<' and any whitespace
+    private void stepOpen(char c) {
+        if (c == '!' && textLength == 1) {
+            state = BANG;
+        } else if (c == '?' && textLength == 1) {
+            state = PI;
+        } else if (isWhitespace(c)) {
+            append(c);
+        } else if (c == '/') {
+            // Only a '/' right after '<' makes an end tag
+            endTag = textLength == 1;
+            append(c);
+            state = SLASH;
+        } else {
+            startName(c);
+        }
+    }
+
+    // Advances the states of comments and other markup, kept apart so step() stays small
+    private void stepMarkup(char c) {
+        switch (state) {
+            case BANG:
+                stepBang(c);
+                break;
+            case COMMENT:
+                stepTerminator(c, '-', 2);
+                break;
+            case CDATA:
+                stepTerminator(c, ']', 2);
+                break;
+            case PI:
+                stepTerminator(c, '?', 1);
+                break;
+            case DECLARATION:
+                stepDeclaration(c);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Enters a quoted attribute value at its opening quote
+    private void startQuote(char c) {
+        if (c == '"' || c == '\'') {
+            quote = c;
+            state = QUOTED;
+        }
+    }
+
+    // Matches the characters after "<!" against the start of a comment or a CDATA section
+    private void stepBang(char c) {
+        if (run == 0) {
+            matchingComment = c == COMMENT_START.charAt(0);
+        }
+        String start = matchingComment ? COMMENT_START : CDATA_START;
+        if (c != start.charAt(run)) {
+            startDeclaration();
+            stepDeclaration(c);
+            return;
+        }
+        run++;
+        if (run == start.length()) {
+            state = matchingComment ? COMMENT : CDATA;
+            run = 0;
+        }
+    }
+
+    // Any other "<!" is a declaration; a '[' already matched opens a section of it
+    private void startDeclaration() {
+        depth = run > 0 && !matchingComment ? 1 : 0;
+        quote = 0;
+        run = 0;
+        state = DECLARATION;
+    }
+
+    /*
+     * Ends a comment, CDATA section or processing instruction at a '>' that
+     * follows at least the given number of the repeated character, such as
+     * the two dashes of "-->". The run count is what lets a terminator span
+     * two blocks.
+     */
+    private void stepTerminator(char c, char repeated, int count) {
+        if (c == repeated) {
+            run++;
+        } else {
+            if (c == '>' && run >= count) {
+                state = TEXT;
+            }
+            run = 0;
+        }
+    }
+
+    /*
+     * Waits for the '>' that ends a declaration, outside of quotes and of any
+     * '[' section, such as the internal subset of a DOCTYPE. Quotes are only
+     * followed outside of sections, so an apostrophe in a comment of the
+     * internal subset cannot hide the rest of the document.
+     */
+    private void stepDeclaration(char c) {
+        if (quote != 0) {
+            if (c == quote) {
+                quote = 0;
+            }
+        } else if (c == '[') {
+            depth++;
+        } else if (c == ']') {
+            if (depth > 0) {
+                depth--;
+            }
+        } else if (depth == 0) {
+            if (c == '>') {
+                state = TEXT;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            }
+        }
+    }
+
+    // A tag, or a partly matched terminator, cannot go on past the end of a line
+    private void endLine() {
+        if (state == BANG) {
+            startDeclaration();
+        } else if (state < BANG) {
+            state = TEXT;
+            quote = 0;
+        }
+        run = 0;
+    }
+
+    // Leaves any tag or markup, for a new document or line
+    private void clearState() {
+        state = TEXT;
+        run = 0;
+        quote = 0;
+        depth = 0;
+    }
+
+    // The byte that ends the run of bytes the current state ignores, or -1 if every byte counts
+    private int skipDelimiter() {
+        if (state == TEXT) {
+            return '<';
+        }
+        if (state < COMMENT || run != 0) {
+            return -1;
+        }
+        return SKIP_DELIMITERS[state - COMMENT];
+    }
+
+    // Starts a new tag at '<'
+    private void begin() {
+        tagOffset = lastOpenOffset;
+        textLength = 0;
+        nameLength = 0;
+        nameHash = 0;
+        endTag = false;
+        append('<');
+        state = OPEN;
+    }
+
+    // The first name character must follow '<', whitespace or '/', otherwise there is no tag here
+    private void startName(char c) {
+        if (isNameChar(c)) {
+            appendName(c);
+            append(c);
+            state = NAME;
+        } else if (c == '<') {
+            begin();
+        } else {
+            state = TEXT;
+        }
+    }
+
+    // Completes the current tag at '>' and hands it over
+    private void finish(TagHandler handler) {
+        boolean slashLast = lastChar == '/';
+        append('>');
+        state = TEXT;
+        int type;
+        if (endTag) {
+            type = END_TAG;
+        } else if (slashLast) {
+            type = SELF_CLOSING_TAG;
+        } else {
+            type = START_TAG;
+        }
+        handler.handleTag(this, type);
+    }
+
+    // Counts every character of the tag, stopping at Integer.MAX_VALUE,
+    // but keeps only the first MAX_TEXT_LENGTH
+    private void append(char c) {
+        lastChar = c;
+        if (textLength < text.length) {
+            text[textLength++] = c;
+        } else if (textLength < MAX_TEXT_LENGTH) {
+            char[] larger = new char[Math.min(text.length * 2, MAX_TEXT_LENGTH)];
+            System.arraycopy(text, 0, larger, 0, textLength);
+            text = larger;
+            text[textLength++] = c;
+        } else if (textLength < Integer.MAX_VALUE) {
+            textLength++;
+        }
+    }
+
+    private void appendName(char c) {
+        if (nameLength == name.length) {
+            if (nameLength == MAX_TEXT_LENGTH) {
+                return;
+            }
+            char[] larger = new char[Math.min(name.length * 2, MAX_TEXT_LENGTH)];
+            System.arraycopy(name, 0, larger, 0, nameLength);
+            name = larger;
+        }
+        name[nameLength++] = c;
+        nameHash = 31 * nameHash + c;
+    }
+
+    // Same characters as [a-zA-Z0-9]
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    // Same characters as \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns the full text of the current tag, attributes included.
+     * Scanned bytes are decoded with the charset given to reset().
+     * A tag longer than MAX_TEXT_LENGTH is cut short, ending in "...".
+     *
+     * @return a new String with the text of the current tag
+     */
+    public String getText() {
+        int kept = Math.min(textLength, MAX_TEXT_LENGTH);
+        String result;
+        if (byteInput) {
+            byte[] bytes = new byte[kept];
+            for (int i = 0; i < kept; i++) {
+                bytes[i] = (byte) text[i];
+            }
+            result = new String(bytes, charset);
+        } else {
+            result = new String(text, 0, kept);
+        }
+        return kept < textLength ? result + "..." : result;
+    }
+
+    /**
+     * Returns the byte offset of the current tag's '<', counted from the
+     * start of the document when scanning bytes, or from the start of the
+     * line when scanning a line.
+     *
+     * @return the offset of the current tag
+     */
+    public long getTagOffset() {
+        return tagOffset;
+    }
+
+    /**
+     * Returns the column of the current tag's '<', counted from 1 at the
+     * start of its line, in bytes when scanning bytes.
+     *
+     * @return the column of the current tag
+     */
+    public int getColumn() {
+        return (int) (tagOffset - lineStartOffset) + 1;
+    }
+
+    /**
+     * Returns the length of the current tag's text, in bytes when scanning bytes.
+     * This is the whole length, even past MAX_TEXT_LENGTH, and stops growing
+     * at Integer.MAX_VALUE for a longer tag.
+     *
+     * @return the number of characters or bytes from '<' to '>' inclusive
+     */
+    public int getTagLength() {
+        return textLength;
+    }
+
+    /**
+     * Returns the name of the current tag.
+     *
+     * @return a new String with the name of the current tag
+     */
+    public String getName() {
+        return new String(name, 0, nameLength);
+    }
+
+    /**
+     * Returns the id of the current tag's name, without creating a String
+     * unless the name is new to the table.
+     *
+     * @param symbols the table the name is interned in
+     * @return the id of the name in the table
+     */
+    public int getNameId(SymbolTable symbols) {
+        return symbols.intern(name, nameLength, nameHash);
+    }
+
+    /**
+     * Returns the line number of the current tag.
+     *
+     * @return the line number passed to scanLine, or the line counted while scanning bytes
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
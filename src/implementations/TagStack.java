@@ -0,0 +1,208 @@
+package implementations;
+
+import java.util.EmptyStackException;
+
+/**
+ * Stack of open tags kept as parallel arrays instead of one object per tag.
+ * Each entry is a name id, a line number and column and the byte offset and
+ * length of the tag in its source, so pushing and popping a well-formed document creates
+ * no objects once the arrays have grown to its depth. A TagEntry is only
+ * created when popTagEntry() is used to report a tag as an error, and its text
+ * is only read back from the source when it is printed. Tags from a source
+ * that cannot be read again keep their text instead.
+ *
+ * Entries are indexed by their distance from the top, as MyStack's iterator
+ * returns them: 0 is the top of the stack.
+ *
+ * The stack also counts how many open tags it holds for each name id, so
+ * contains() answers in constant time instead of walking the stack.
+ *
+ * @version 1.0
+ * @see implementations.MyStack
+ * @see implementations.TagEntry
+ */
+public class TagStack {
+    private static final int DEFAULT_CAPACITY = 32;
+
+    private int[] nameIds;
+    private int[] lineNumbers;
+    private int[] columns;
+    private long[] offsets;
+    private int[] lengths;
+    private String[] texts;
+    private int size;
+    // Number of entries on the stack for each name id
+    private int[] nameCounts;
+
+    /**
+     * Constructs an empty stack with the default capacity.
+     */
+    public TagStack() {
+        nameIds = new int[DEFAULT_CAPACITY];
+        lineNumbers = new int[DEFAULT_CAPACITY];
+        columns = new int[DEFAULT_CAPACITY];
+        offsets = new long[DEFAULT_CAPACITY];
+        lengths = new int[DEFAULT_CAPACITY];
+        texts = new String[DEFAULT_CAPACITY];
+        nameCounts = new int[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    /**
+     * Pushes an open tag onto the top of this stack.
+     *
+     * @param nameId the id of the tag's name
+     * @param lineNumber the line number of the tag
+     * @param column the column of the tag in its line
+     * @param offset the byte offset of the tag in its source
+     * @param length the length of the tag in bytes
+     * @param text the full text of the tag, or null to read it from the source
+     */
+    public void push(int nameId, int lineNumber, int column, long offset, int length, String text) {
+        if (size == nameIds.length) {
+            grow();
+        }
+        if (nameId >= nameCounts.length) {
+            int[] larger = new int[Math.max(nameCounts.length * 2, nameId + 1)];
+            System.arraycopy(nameCounts, 0, larger, 0, nameCounts.length);
+            nameCounts = larger;
+        }
+        nameCounts[nameId]++;
+        nameIds[size] = nameId;
+        lineNumbers[size] = lineNumber;
+        columns[size] = column;
+        offsets[size] = offset;
+        lengths[size] = length;
+        texts[size] = text;
+        size++;
+    }
+
+    /**
+     * Removes the tag at the top of this stack.
+     *
+     * @throws EmptyStackException if this stack is empty
+     */
+    public void pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        size--;
+        nameCounts[nameIds[size]]--;
+        texts[size] = null;
+    }
+
+    /**
+     * Removes the tag at the top of this stack and returns it as a TagEntry.
+     *
+     * @param symbols the table the tag's name id belongs to
+     * @param source the source to read the tag's text from, if it was pushed without one
+     * @return the tag that was at the top of this stack
+     * @throws EmptyStackException if this stack is empty
+     */
+    public TagEntry popTagEntry(SymbolTable symbols, TagTextSource source) {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        int top = size - 1;
+        String name = symbols.getName(nameIds[top]);
+        TagEntry entry;
+        if (texts[top] != null) {
+            entry = new TagEntry(texts[top], name, nameIds[top], lineNumbers[top], columns[top], false);
+        } else {
+            entry = new TagEntry(source, offsets[top], lengths[top], name, nameIds[top],
+                    lineNumbers[top], columns[top], false);
+        }
+        pop();
+        return entry;
+    }
+
+    /**
+     * Returns the name id of the tag at the given distance from the top.
+     *
+     * @param depth 0 for the top of the stack, 1 for the tag below it, and so on
+     * @return the name id of that tag
+     * @throws IndexOutOfBoundsException if depth is not less than size()
+     */
+    public int getNameId(int depth) {
+        if (depth < 0 || depth >= size) {
+            throw new IndexOutOfBoundsException("Depth: " + depth + ", Size: " + size);
+        }
+        return nameIds[size - 1 - depth];
+    }
+
+    /**
+     * Returns the line number of the tag at the given distance from the top.
+     *
+     * @param depth 0 for the top of the stack, 1 for the tag below it, and so on
+     * @return the line number of that tag
+     * @throws IndexOutOfBoundsException if depth is not less than size()
+     */
+    public int getLineNumber(int depth) {
+        if (depth < 0 || depth >= size) {
+            throw new IndexOutOfBoundsException("Depth: " + depth + ", Size: " + size);
+        }
+        return lineNumbers[size - 1 - depth];
+    }
+
+    /**
+     * Returns true if this stack holds a tag with the given name id.
+     *
+     * @param nameId the name id to look for
+     * @return true if a tag with that name is open
+     */
+    public boolean contains(int nameId) {
+        return nameId >= 0 && nameId < nameCounts.length && nameCounts[nameId] > 0;
+    }
+
+    /**
+     * Returns true if this stack holds no tags.
+     *
+     * @return true if this stack is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of tags on this stack.
+     *
+     * @return the number of open tags
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every tag from this stack, keeping its arrays for reuse.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            nameCounts[nameIds[i]]--;
+            texts[i] = null;
+        }
+        size = 0;
+    }
+
+    // Doubles the capacity of every array
+    private void grow() {
+        int capacity = nameIds.length * 2;
+        int[] newNameIds = new int[capacity];
+        int[] newLineNumbers = new int[capacity];
+        int[] newColumns = new int[capacity];
+        long[] newOffsets = new long[capacity];
+        int[] newLengths = new int[capacity];
+        String[] newTexts = new String[capacity];
+        System.arraycopy(nameIds, 0, newNameIds, 0, size);
+        System.arraycopy(lineNumbers, 0, newLineNumbers, 0, size);
+        System.arraycopy(columns, 0, newColumns, 0, size);
+        System.arraycopy(offsets, 0, newOffsets, 0, size);
+        System.arraycopy(lengths, 0, newLengths, 0, size);
+        System.arraycopy(texts, 0, newTexts, 0, size);
+        nameIds = newNameIds;
+        lineNumbers = newLineNumbers;
+        columns = newColumns;
+        offsets = newOffsets;
+        lengths = newLengths;
+        texts = newTexts;
+    }
+}
@@ -0,0 +1,93 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the text of a tag back from its file, given the tag's byte offset
+ * and length. Parsers that scan a file through a FileChannel keep only these
+ * two numbers for each open tag and ask this source for the text when an
+ * error is printed.
+ *
+ * Like TagLexer.getText(), a span longer than TagLexer.MAX_TEXT_LENGTH is
+ * read only up to that length and cut short, ending in "...".
+ *
+ * The most recently read spans are cached, up to a fixed number, so a tag
+ * that is printed more than once is only read once. Spans longer than
+ * MAX_CACHED_LENGTH are read again each time, so the cache stays small.
+ *
+ * @version 1.0
+ * @see implementations.TagEntry
+ */
+public class TagTextSource {
+    /** Number of spans kept in the cache by default */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+    /** Longest span, in bytes, kept in the cache */
+    public static final int MAX_CACHED_LENGTH = 1 << 12;
+
+    private FileChannel channel;
+    private Charset charset;
+    private Map<Long, String> cache;
+
+    /**
+     * Constructs a new source that reads from the given channel.
+     *
+     * @param channel the channel of the scanned file, which must stay open
+     *                as long as the source is used
+     * @param charset the encoding used to decode the text
+     * @param cacheSize the largest number of spans kept in the cache
+     */
+    public TagTextSource(FileChannel channel, Charset charset, int cacheSize) {
+        this.channel = channel;
+        this.charset = charset;
+        this.cache = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the text of the span starting at the given offset, cut short
+     * past TagLexer.MAX_TEXT_LENGTH bytes.
+     *
+     * @param offset the byte offset of the first byte of the span
+     * @param length the number of bytes in the span
+     * @return the decoded text of the span
+     * @throws UncheckedIOException if the file can no longer be read
+     */
+    public synchronized String getText(long offset, int length) {
+        String text = cache.get(offset);
+        if (text == null) {
+            text = read(offset, length);
+            if (length <= MAX_CACHED_LENGTH) {
+                cache.put(offset, text);
+            }
+        }
+        return text;
+    }
+
+    // Reads and decodes at most MAX_TEXT_LENGTH bytes of a span from the channel
+    private String read(long offset, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.min(length, TagLexer.MAX_TEXT_LENGTH));
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String text = new String(buffer.array(), 0, buffer.position(), charset);
+        return length > TagLexer.MAX_TEXT_LENGTH ? text + "..." : text;
+    }
+}
@@ -0,0 +1,73 @@
+package implementations;
+
+import java.io.PrintStream;
+import java.io.Writer;
+
+/**
+ * Prints results as human-readable text: one line per error, followed by a
+ * verdict for the document. This is the format printed by the command line.
+ *
+ * @version 1.0
+ * @see implementations.ReportSink
+ */
+public class TextReportSink extends BufferedReportSink {
+
+    /**
+     * Constructs a text sink that writes to a print stream.
+     *
+     * @param output the stream to write to
+     */
+    public TextReportSink(PrintStream output) {
+        super(output);
+    }
+
+    /**
+     * Constructs a text sink that writes to a writer.
+     *
+     * @param writer the writer to write to
+     */
+    public TextReportSink(Writer writer) {
+        super(writer);
+    }
+
+    @Override
+    public void startDocument(String filePath) {
+    }
+
+    /**
+     * Prints a formatted error message for a malformed tag.
+     * Includes the line no. and the full text of the XML tag.
+     *
+     * @param error the error to print
+     */
+    @Override
+    public void error(ValidationError error) {
+        out.println("Error at line: " + error.getLine() + " " + error.getMessage());
+    }
+
+    /**
+     * Prints the counts of any errors past the error limit, then whether any
+     * errors were found in the document, without a line terminator, and
+     * flushes the output.
+     *
+     * @param report the report for the document
+     */
+    @Override
+    public void endDocument(ValidationReport report) {
+        ErrorSummary dropped = report.getDroppedErrors();
+        if (dropped.getTotal() > 0) {
+            out.println(dropped.getTotal() + " more errors not shown:");
+            for (int i = 0; i < dropped.size(); i++) {
+                out.println("  " + dropped.getName(i) + ": " + dropped.getCount(i) + " on lines "
+                        + dropped.getFirstLine(i) + "-" + dropped.getLastLine(i));
+            }
+        }
+        if (report.hasErrors()) {
+            out.print("You have errors! Boooooo!!");
+        }
+        else {
+            out.print("XML is constructed correctly. Woohoo!");
+        }
+        out.flush();
+    }
+}
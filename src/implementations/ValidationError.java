@@ -0,0 +1,118 @@
+package implementations;
+
+/**
+ * One error found while validating a document: a tag that could not be
+ * matched, with where it was found and what kind of error it is.
+ *
+ * @version 1.0
+ * @see implementations.ValidationReport
+ */
+public class ValidationError {
+    /**
+     * The kinds of error the parser reports.
+     */
+    public enum Kind {
+        /** A start tag that is never closed */
+        UNCLOSED_TAG("Start tag is never closed"),
+        /** An end tag that does not close any open start tag */
+        UNMATCHED_END_TAG("End tag does not match any open start tag");
+
+        private final String description;
+
+        Kind(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Returns a short description of this kind of error.
+         *
+         * @return the description, as a sentence
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private Kind kind;
+    private int line;
+    private int column;
+    private long offset;
+    private String tag;
+    private String name;
+
+    /**
+     * Constructs a new ValidationError.
+     *
+     * @param kind the kind of error
+     * @param line the line number of the tag
+     * @param column the column of the tag in its line, counted from 1
+     * @param offset the byte offset of the tag in the document, or -1 if unknown
+     * @param tag the full text of the tag
+     * @param name the name of the tag
+     */
+    public ValidationError(Kind kind, int line, int column, long offset, String tag, String name) {
+        this.kind = kind;
+        this.line = line;
+        this.column = column;
+        this.offset = offset;
+        this.tag = tag;
+        this.name = name;
+    }
+
+    /**
+     * Constructs the error for a tag that was left unmatched.
+     * End tags are reported as UNMATCHED_END_TAG and start tags as UNCLOSED_TAG.
+     *
+     * @param entry the unmatched tag
+     * @return the error for the tag
+     */
+    public static ValidationError of(TagEntry entry) {
+        return new ValidationError(entry.isEndTag() ? Kind.UNMATCHED_END_TAG : Kind.UNCLOSED_TAG,
+                entry.getLineNo(), entry.getColumn(), entry.getOffset(), entry.getFullTag(), entry.getName());
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * Returns the column of the tag's '<', counted from 1. Columns are counted
+     * in characters when the document is read line by line, and in bytes
+     * when it is scanned as bytes.
+     *
+     * @return the column of the tag
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the byte offset of the tag's '<' in the document.
+     *
+     * @return the offset, or -1 if the document was not read from a file as bytes
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the message printed for this error, without its location.
+     *
+     * @return the tag followed by the reason it is an error
+     */
+    public String getMessage() {
+        return tag + " is not constructed correctly.";
+    }
+}
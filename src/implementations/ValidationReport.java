@@ -0,0 +1,133 @@
+package implementations;
+
+import utilities.Iterator;
+
+/**
+ * The result of validating one document: every error reported, in the order
+ * it was reported, whether the document has errors, and the reason the
+ * document could not be read, if it could not.
+ *
+ * A document can have errors that are never reported on their own, such as
+ * an extra end tag that cancels against an unclosed start tag, so
+ * hasErrors() can be true when getErrorCount() is 0.
+ *
+ * When the parser has an error limit, only that many errors are kept one by
+ * one; the rest are only counted, by tag name, in an ErrorSummary.
+ *
+ * @version 1.0
+ * @see implementations.ValidationError
+ * @see implementations.ReportSink
+ */
+public class ValidationReport {
+    private String filePath;
+    private MyArrayList<ValidationError> errors;
+    private ErrorSummary droppedErrors;
+    private boolean hasErrors;
+    private String fileError;
+
+    /**
+     * Constructs an empty report for a document.
+     *
+     * @param filePath the path of the document
+     */
+    public ValidationReport(String filePath) {
+        this.filePath = filePath;
+        this.errors = new MyArrayList<>();
+        this.droppedErrors = new ErrorSummary();
+    }
+
+    /**
+     * Adds an error to the end of this report.
+     *
+     * @param error the error to add
+     */
+    public void addError(ValidationError error) {
+        errors.add(error);
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Returns the number of errors reported for the document.
+     *
+     * @return the number of errors in this report
+     */
+    public int getErrorCount() {
+        return errors.size();
+    }
+
+    /**
+     * Returns the error at the given position in this report.
+     *
+     * @param index the position of the error, in the order reported
+     * @return the error at that position
+     * @throws IndexOutOfBoundsException if index is out of range
+     */
+    public ValidationError getError(int index) {
+        return errors.get(index);
+    }
+
+    /**
+     * Returns the counts of the errors that were not kept one by one.
+     *
+     * @return the summary of the dropped errors, empty if none were dropped
+     */
+    public ErrorSummary getDroppedErrors() {
+        return droppedErrors;
+    }
+
+    /**
+     * Returns the number of errors that were not kept one by one.
+     *
+     * @return the number of dropped errors
+     */
+    public long getDroppedErrorCount() {
+        return droppedErrors.getTotal();
+    }
+
+    /**
+     * Returns an iterator over the errors, in the order reported.
+     *
+     * @return an iterator over the errors in this report
+     */
+    public Iterator<ValidationError> iterator() {
+        return errors.iterator();
+    }
+
+    /**
+     * Returns whether the document has errors.
+     *
+     * @return true if any tag in the document was not constructed correctly
+     */
+    public boolean hasErrors() {
+        return hasErrors;
+    }
+
+    public void setHasErrors(boolean hasErrors) {
+        this.hasErrors = hasErrors;
+    }
+
+    /**
+     * Returns why the document could not be read.
+     *
+     * @return the message of the error, or null if the document was read
+     */
+    public String getFileError() {
+        return fileError;
+    }
+
+    public void setFileError(String fileError) {
+        this.fileError = fileError;
+    }
+
+    /**
+     * Returns whether the document was read and has no errors.
+     *
+     * @return true if the document is constructed correctly
+     */
+    public boolean isValid() {
+        return !hasErrors && fileError == null;
+    }
+}
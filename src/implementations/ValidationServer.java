@@ -0,0 +1,347 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Validates XML documents sent over HTTP, so a long-running process can
+ * serve many requests without starting a JVM for each document. All requests
+ * share one XMLParser, so its pooled ParseContexts, with their buffers, and
+ * its SymbolTable are reused, and the scanning code stays compiled by the JIT
+ * from one request to the next. The SymbolTable keeps every tag name it is
+ * given, and the contexts keep arrays sized by the number of names, so once
+ * it holds more than a set number of names the parser is replaced by a new
+ * one. Requests that are using the old parser finish on it.
+ *
+ * <pre>
+ * POST /validate           validates the request body as a document
+ * GET  /validate?path=FILE validates a local file, such as res/a.xml
+ * GET  /stats              returns the throughput and latency of the server
+ * </pre>
+ *
+ * Each document is answered with 200 and the JSON object that JsonReportSink
+ * prints for it, whether it is valid, has errors or could not be read. A body
+ * may be gzip-compressed, and may be given a name with ?name=NAME. Requests
+ * the server cannot answer with a document get 4xx and {"error":"..."}.
+ *
+ * The server listens on the loopback address by default, since it reads any
+ * file its process can read.
+ *
+ * @version 1.0
+ * @see implementations.ServerStats
+ */
+public class ValidationServer {
+    /** Port the server listens on when none is given */
+    public static final int DEFAULT_PORT = 8080;
+    /** Most errors of a document kept one by one; the rest are counted by tag name */
+    public static final int DEFAULT_ERROR_LIMIT = 1000;
+    /** Most tag names the shared parser holds before it is replaced */
+    public static final int DEFAULT_MAX_SYMBOLS = 1 << 16;
+
+    // Name a request body is reported under when the request does not name it
+    private static final String DEFAULT_NAME = "request";
+    // Connections queued by the operating system while all threads are busy
+    private static final int BACKLOG = 128;
+    // Sends small responses at once instead of waiting on the client's delayed
+    // acknowledgement, which adds about 40 ms to every request otherwise
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    static {
+        // read by the JDK once, when its first server is created
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService pool;
+    private final ServerStats stats;
+    private final int errorLimit;
+    private final int maxSymbols;
+    // Replaced by a new parser once its SymbolTable holds more than maxSymbols names
+    private volatile XMLParser parser;
+
+    /**
+     * Constructs a server on a loopback port that uses one thread per core.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ValidationServer(int port) throws IOException {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                Runtime.getRuntime().availableProcessors(), DEFAULT_ERROR_LIMIT);
+    }
+
+    /**
+     * Constructs a server. Validation is bound by the CPU, so more threads
+     * than cores only help while requests wait on a slow client or disk.
+     *
+     * @param address the address and port to listen on
+     * @param threads the number of requests handled at once
+     * @param errorLimit the most errors of a document kept one by one
+     * @throws IOException if the address cannot be bound
+     */
+    public ValidationServer(InetSocketAddress address, int threads, int errorLimit) throws IOException {
+        this(address, threads, errorLimit, DEFAULT_MAX_SYMBOLS);
+    }
+
+    /**
+     * Constructs a server that replaces its parser once it holds more than
+     * the given number of tag names.
+     *
+     * @param address the address and port to listen on
+     * @param threads the number of requests handled at once
+     * @param errorLimit the most errors of a document kept one by one
+     * @param maxSymbols the most tag names the shared parser holds
+     * @throws IOException if the address cannot be bound
+     */
+    public ValidationServer(InetSocketAddress address, int threads, int errorLimit, int maxSymbols)
+            throws IOException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A server needs at least one thread: " + threads);
+        }
+        this.errorLimit = errorLimit;
+        this.maxSymbols = maxSymbols;
+        this.parser = new XMLParser(new TextReportSink(System.out), errorLimit);
+        this.stats = new ServerStats();
+        this.pool = Executors.newFixedThreadPool(threads, new WorkerFactory());
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(pool);
+        server.createContext("/validate", this::handleValidate);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, lets those being handled finish for up to
+     * the given delay, and stops the worker threads.
+     *
+     * @param delaySeconds the most seconds to wait for requests being handled
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        pool.shutdown();
+    }
+
+    /**
+     * Returns the address the server listens on, with the port it was given
+     * if it was started on port 0.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Returns the request counts and latencies recorded since the server was
+     * constructed, which keep growing while it serves requests.
+     *
+     * @return the stats of this server
+     */
+    public ServerStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the number of tag names the shared parser holds.
+     *
+     * @return the size of the current parser's SymbolTable
+     */
+    public int getSymbolCount() {
+        return parser.getSymbolCount();
+    }
+
+    /**
+     * Validates the document of a request: the file named by its path
+     * parameter, or else the body of a POST.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleValidate(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "GET, POST");
+                respondError(exchange, 405, "Use POST with a document or GET with ?path=");
+                return;
+            }
+            URI uri = exchange.getRequestURI();
+            String path;
+            String name;
+            try {
+                path = queryParameter(uri, "path");
+                name = path != null ? XMLParser.resolvePath(path) : queryParameter(uri, "name");
+            } catch (IllegalArgumentException e) {
+                respondError(exchange, 400, "Malformed query: " + e.getMessage());
+                return;
+            }
+            if (path == null && method.equals("GET")) {
+                respondError(exchange, 400, "Missing ?path= of the file to validate");
+                return;
+            }
+            if (name == null) {
+                name = DEFAULT_NAME;
+            }
+
+            StringWriter buffer = new StringWriter();
+            ReportSink sink = new JsonReportSink(buffer);
+            XMLParser parser = this.parser;
+            ValidationReport report;
+            try {
+                if (path != null) {
+                    report = parser.validate(name, sink);
+                }
+                else {
+                    try (InputStream body = exchange.getRequestBody()) {
+                        report = parser.validate(name, body, sink);
+                    }
+                }
+                sink.finish();
+            } catch (IOException e) {
+                // the sink has already started the document, so the report is written anew
+                buffer = new StringWriter();
+                sink = new JsonReportSink(buffer);
+                report = new ValidationReport(name);
+                report.setFileError(e.getMessage());
+                sink.startDocument(name);
+                sink.endDocument(report);
+                sink.finish();
+            }
+            renewParser(parser);
+            failed = report.getFileError() != null;
+            respond(exchange, 200, buffer.toString());
+        } finally {
+            stats.addRequest(System.nanoTime() - start, failed);
+            exchange.close();
+        }
+    }
+
+    /**
+     * Replaces the shared parser with a new one once its SymbolTable holds
+     * more than maxSymbols names, unless another request has already done so.
+     *
+     * @param used the parser a request was validated with
+     */
+    private void renewParser(XMLParser used) {
+        if (used.getSymbolCount() <= maxSymbols) {
+            return;
+        }
+        synchronized (this) {
+            if (parser == used) {
+                parser = new XMLParser(new TextReportSink(System.out), errorLimit);
+            }
+        }
+    }
+
+    /**
+     * Answers with the throughput and latency of the server so far.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                respondError(exchange, 405, "Use GET");
+                return;
+            }
+            StringBuilder json = new StringBuilder();
+            json.append("{\"requests\":").append(stats.getRequestCount());
+            json.append(",\"failedRequests\":").append(stats.getFailedRequestCount());
+            json.append(",\"uptimeMillis\":").append(stats.getUptimeNanos() / 1000000);
+            json.append(",\"throughputPerSecond\":").append(String.format("%.2f", stats.getThroughput()));
+            json.append(",\"latencyMicros\":{\"mean\":").append(stats.getMeanLatencyNanos() / 1000);
+            json.append(",\"p50\":").append(stats.getLatencyPercentileNanos(0.5) / 1000);
+            json.append(",\"p90\":").append(stats.getLatencyPercentileNanos(0.9) / 1000);
+            json.append(",\"p99\":").append(stats.getLatencyPercentileNanos(0.99) / 1000);
+            json.append(",\"max\":").append(stats.getMaxLatencyNanos() / 1000);
+            json.append("}}\n");
+            respond(exchange, 200, json.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Answers with an error object
+    private static void respondError(HttpExchange exchange, int status, String message) throws IOException {
+        respond(exchange, status, "{\"error\":" + JsonReportSink.quote(message) + "}\n");
+    }
+
+    // Answers with a JSON body of a known length, so the connection can be kept alive
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+
+    /**
+     * Returns the decoded value of a query parameter.
+     *
+     * @param uri the request URI
+     * @param key the name of the parameter
+     * @return the value of its first occurrence, or null if it is not given
+     */
+    private static String queryParameter(URI uri, String key) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            if (decode(name).equals(key)) {
+                return equals < 0 ? "" : decode(pair.substring(equals + 1));
+            }
+        }
+        return null;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException("UTF-8 is always supported", e);
+        }
+    }
+
+    /**
+     * Names the worker threads, so they can be told apart in a thread dump.
+     */
+    private static class WorkerFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            return new Thread(task, "validation-" + count.incrementAndGet());
+        }
+    }
+}
@@ -1,78 +1,344 @@
 /**
  * A parser for XML files that validates the structure of XML tags.
  * The parser checks for properly nested and matching tags, and reports
- * any errors found during parsing.
+ * any errors found during parsing. The errors of each document are returned
+ * as a ValidationReport and handed, as they are found, to a ReportSink that
+ * prints them as text, JSON or SARIF. An error limit bounds the memory used
+ * for a document with a huge number of errors, and a check policy lets
+ * valid documents skip the full diagnostics.
+ * 
+ * A parser keeps no state of its own between documents: every parse runs in
+ * a ParseContext taken from a pool, so one parser can validate many documents
+ * at once from many threads, each handing its results to a sink of its own.
+ * Tag names are interned in one SymbolTable that all of those documents share.
+ * A sink is used by one thread at a time, so the parse methods that take no
+ * sink hold the parser's own sink from the start of a document to its end,
+ * and documents given to them from several threads are validated one after
+ * another.
  */
 package implementations;
 
 import java.io.*;
-import java.util.regex.*;
-import exceptions.EmptyQueueException;
-import utilities.Iterator;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.GZIPInputStream;
 
 public class XMLParser {
+    /** Error limit of a parser that keeps every error */
+    public static final int NO_ERROR_LIMIT = Integer.MAX_VALUE;
+    /** File name on the command line that stands for standard input */
+    public static final String STANDARD_INPUT = "-";
+    
+    /**
+     * Whether a document is first checked with a StructureChecker, which only
+     * finds out whether it is valid, before the full diagnostics are run.
+     */
+    public enum CheckPolicy {
+        /** Every document gets the full diagnostics */
+        FULL,
+        /** Documents are only checked, and only the verdict is reported */
+        CHECK_ONLY,
+        /** Documents are checked first, and only invalid ones get the full diagnostics */
+        DIAGNOSE_FAILURES
+    }
 	
-    private MyStack<TagEntry> tagStack;
-    private MyQueue<TagEntry> errorQueue;
-    private MyQueue<TagEntry> extrasQueue;
-    private static boolean isErrors;
+    // Largest region a single MappedByteBuffer can hold
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+    // Smallest chunk worth handing to another thread in parseParallelXML()
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    // Bytes read at a time while looking for the end of a line
+    private static final int BOUNDARY_SEARCH_SIZE = 4096;
+    // Compressed bytes read at a time from a gzip file, so the inflater works on large runs
+    private static final int INFLATER_BUFFER_SIZE = 1 << 18;
+    // Exit status when the arguments are not understood
+    private static final int STATUS_USAGE = 2;
+    // Name standard input is reported under
+    private static final String STANDARD_INPUT_NAME = "stdin";
+    
+    private final ReportSink sink;
+    // Most errors kept one by one for each document
+    private final int errorLimit;
+    private final CheckPolicy checkPolicy;
+    // Tag names of every document this parser has seen
+    private final SymbolTable symbols;
+    // Idle contexts, most recently used on top; guarded by itself
+    private final MyStack<ParseContext> contexts;
     
     /**
-     * Constructs a new XMLParser with empty stacks and queues.
+     * Constructs a new XMLParser that prints its results to standard output.
      */
     public XMLParser() {
-        tagStack = new MyStack<>();  
-        errorQueue = new MyQueue<>();   
-        extrasQueue = new MyQueue<>();
-        isErrors = false;
+        this(System.out);
     }
     
     /**
-     * Represents an XML tag entry with its full text, name, and line number.
+     * Constructs a new XMLParser that prints its results as text.
+     * 
+     * @param output the stream that errors are printed to
      */
-    class TagEntry {
-        private String fullTag;
-        private String name;
-        private int lineNo;
-        
-        /**
-         * Constructs a new TagEntry with the specified parameters.
-         * 
-         * @param fullTag the complete text of the XML tag
-         * @param tagName the name of the XML tag
-         * @param lineNo the line number where the tag appears
-         */
-        public TagEntry(String fullTag, String tagName, int lineNo) {
-            this.fullTag = fullTag;
-            this.name = tagName;
-            this.lineNo = lineNo;
-        }
-        public String getFullTag() {
-            return fullTag;
-        }
-        public String getName() {
-            return name;
-        }
-        public int getLineNo() {
-            return lineNo;
+    public XMLParser(PrintStream output) {
+        this(new TextReportSink(output));
+    }
+    
+    /**
+     * Constructs a new XMLParser that keeps every error.
+     * 
+     * @param sink the sink that the results of each document are handed to
+     */
+    public XMLParser(ReportSink sink) {
+        this(sink, NO_ERROR_LIMIT);
+    }
+    
+    /**
+     * Constructs a new XMLParser with an error limit. Past the first errorLimit
+     * errors of a document, errors are only counted by tag name in the report's
+     * ErrorSummary, and at most a few times errorLimit unmatched tags are held
+     * until the end of the document. The errors kept are the first ones found
+     * without a limit.
+     * 
+     * @param sink the sink that the results of each document are handed to
+     * @param errorLimit the most errors kept one by one, or NO_ERROR_LIMIT
+     */
+    public XMLParser(ReportSink sink, int errorLimit) {
+        this(sink, errorLimit, CheckPolicy.FULL);
+    }
+    
+    /**
+     * Constructs a new XMLParser with an error limit and a check policy.
+     * 
+     * @param sink the sink that the results of each document are handed to
+     * @param errorLimit the most errors kept one by one, or NO_ERROR_LIMIT
+     * @param checkPolicy whether documents are checked before, or instead of,
+     *                    the full diagnostics
+     */
+    public XMLParser(ReportSink sink, int errorLimit, CheckPolicy checkPolicy) {
+        if (errorLimit < 0) {
+            throw new IllegalArgumentException("Error limit cannot be negative: " + errorLimit);
         }
+        this.sink = sink;
+        this.errorLimit = errorLimit;
+        this.checkPolicy = checkPolicy;
+        this.symbols = new SymbolTable();
+        this.contexts = new MyStack<>();
     }
     
     /**
      * Main method for command-line execution of the XML parser.
      * 
-     * @param args command-line arguments (expects exactly one filename argument)
+     * @param args command-line arguments, in one of these forms:
+     *             <ul>
+     *             <li>[options] filename: validates one file, or standard
+     *             input if the filename is "-"</li>
+     *             <li>-batch [-check | -checkfirst] paths: validates files,
+     *             directories, archives and @lists</li>
+     *             <li>-server [port]: validates documents sent over HTTP</li>
+     *             <li>-watch directories: validates files again whenever they change</li>
+     *             </ul>
+     *             as exitWithUsage() lists them
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.out.println("Usage: java XMLParser <filename>");
+        if (args.length > 0 && args[0].equals("-batch")) {
+            int first = 1;
+            CheckPolicy batchPolicy = CheckPolicy.FULL;
+            if (args.length > 1 && parseCheckPolicy(args[1]) != null) {
+                batchPolicy = parseCheckPolicy(args[1]);
+                first = 2;
+            }
+            if (args.length == first) {
+                exitWithUsage();
+                return;
+            }
+            String[] paths = new String[args.length - first];
+            System.arraycopy(args, first, paths, 0, paths.length);
+            PrintStream output = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+            System.exit(new BatchValidator(output, Runtime.getRuntime().availableProcessors(), batchPolicy).run(paths));
+        }
+        if (args.length > 0 && args[0].equals("-server")) {
+            int port = args.length == 2 ? parseCount(args[1]) : ValidationServer.DEFAULT_PORT;
+            if (args.length > 2 || port < 0 || port > 0xFFFF) {
+                exitWithUsage();
+                return;
+            }
+            startServer(port);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("-watch")) {
+            if (args.length < 2) {
+                exitWithUsage();
+                return;
+            }
+            String[] directories = new String[args.length - 1];
+            System.arraycopy(args, 1, directories, 0, directories.length);
+            watchDirectories(directories);
+            return;
+        }
+        
+        String mode = "";
+        String format = "";
+        int errorLimit = NO_ERROR_LIMIT;
+        CheckPolicy checkPolicy = CheckPolicy.FULL;
+        boolean validArgs = args.length >= 1;
+        for (int i = 0; i < args.length - 1; i++) {
+            if ((args[i].equals("-mmap") || args[i].equals("-parallel") || args[i].equals("-pipeline"))
+                    && mode.isEmpty()) {
+                mode = args[i];
+            }
+            else if (parseCheckPolicy(args[i]) != null && checkPolicy == CheckPolicy.FULL) {
+                checkPolicy = parseCheckPolicy(args[i]);
+            }
+            else if ((args[i].equals("-json") || args[i].equals("-sarif")) && format.isEmpty()) {
+                format = args[i];
+            }
+            else if (args[i].equals("-maxerrors") && i + 2 < args.length) {
+                errorLimit = parseCount(args[++i]);
+                validArgs &= errorLimit >= 0;
+            }
+            else {
+                validArgs = false;
+            }
+        }
+        if (!validArgs) {
+            exitWithUsage();
             return;
         }
 
-        String filePath = "res/" + args[0];
-        XMLParser parser = new XMLParser();
-        parser.parseXML(filePath);
-        printIsErrors();
+        ReportSink sink;
+        if (format.equals("-json")) {
+            sink = new JsonReportSink(System.out);
+        }
+        else if (format.equals("-sarif")) {
+            sink = new SarifReportSink(System.out);
+        }
+        else {
+            sink = new TextReportSink(System.out);
+        }
+        XMLParser parser = new XMLParser(sink, errorLimit, checkPolicy);
+        if (args[args.length - 1].equals(STANDARD_INPUT)) {
+            // a pipe cannot be mapped or split, so only -pipeline changes how it is read
+            PipelineStats stats = mode.equals("-pipeline") ? new PipelineStats() : null;
+            ValidationReport report = parser.parseStream(new FileInputStream(FileDescriptor.in), STANDARD_INPUT_NAME, stats);
+            if (stats != null) {
+                System.err.println(stats);
+            }
+            sink.finish();
+            System.exit(exitStatus(report));
+        }
+        String filePath = resolvePath(args[args.length - 1]);
+        if (mode.equals("-mmap")) {
+            parser.parseMappedXML(filePath);
+        }
+        else if (mode.equals("-parallel")) {
+            parser.parseParallelXML(filePath);
+        }
+        else if (mode.equals("-pipeline")) {
+            PipelineStats stats = new PipelineStats();
+            parser.parsePipelinedXML(filePath, stats);
+            System.err.println(stats);
+        }
+        else {
+            parser.parseXML(filePath);
+        }
+        sink.finish();
+    }
+    
+    // Prints how the parser is run and exits with a status scripts can tell from a valid file
+    private static void exitWithUsage() {
+        System.out.println("Usage: java XMLParser [-mmap | -parallel | -pipeline] [-json | -sarif]");
+        System.out.println("                      [-maxerrors <n>] [-check | -checkfirst] <filename>");
+        System.out.println("       java XMLParser -batch [-check | -checkfirst] <file | directory | archive | @listfile>...");
+        System.out.println("       java XMLParser -server [port]");
+        System.out.println("       java XMLParser -watch <directory>...");
+        System.exit(STATUS_USAGE);
+    }
+    
+    // Validates the files of directories again whenever they change, until the process is stopped
+    private static void watchDirectories(String[] directories) {
+        try (DirectoryWatcher watcher = new DirectoryWatcher(System.out)) {
+            for (String directory : directories) {
+                watcher.watch(Paths.get(resolvePath(directory)));
+            }
+            watcher.run();
+        } catch (IOException e) {
+            System.err.println("File error: " + e.getMessage());
+            System.exit(BatchValidator.STATUS_FILE_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Serves validation over HTTP until the process is stopped, then prints the server's stats
+    private static void startServer(int port) {
+        ValidationServer server;
+        try {
+            server = new ValidationServer(port);
+        } catch (IOException e) {
+            System.err.println("Server error: " + e.getMessage());
+            System.exit(BatchValidator.STATUS_FILE_ERROR);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(1);
+            System.err.println(server.getStats());
+        }));
+        server.start();
+        InetSocketAddress address = server.getAddress();
+        System.out.println("Validating at http://" + address.getHostString() + ":" + address.getPort() + "/validate");
+    }
+    
+    /**
+     * Returns the exit status a script can act on for a single document, as
+     * BatchValidator returns for many files.
+     * 
+     * @param report the report for the document
+     * @return BatchValidator.STATUS_VALID, STATUS_ERRORS or STATUS_FILE_ERROR
+     */
+    public static int exitStatus(ValidationReport report) {
+        if (report.getFileError() != null) {
+            return BatchValidator.STATUS_FILE_ERROR;
+        }
+        return report.hasErrors() ? BatchValidator.STATUS_ERRORS : BatchValidator.STATUS_VALID;
+    }
+    
+    // Returns the check policy named by an option, or null if it names none
+    private static CheckPolicy parseCheckPolicy(String option) {
+        if (option.equals("-check")) {
+            return CheckPolicy.CHECK_ONLY;
+        }
+        if (option.equals("-checkfirst")) {
+            return CheckPolicy.DIAGNOSE_FAILURES;
+        }
+        return null;
+    }
+    
+    // Parses the number after -maxerrors or -server, or returns -1 if it is not a number
+    private static int parseCount(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Resolves a file name given on the command line.
+     * Relative names are looked up in the "res" folder.
+     * 
+     * @param name the file name as given
+     * @return the path to open
+     */
+    static String resolvePath(String name) {
+        if (new File(name).isAbsolute()) {
+            return name;
+        }
+        return "res/" + name;
     }
     
     /**
@@ -81,164 +347,792 @@ public class XMLParser {
      * improperly nested tags, and malformed tag syntax.
      * 
      * @param filePath the path to the XML file to parse
+     * @return the report for the file
+     */
+    public ValidationReport parseXML(String filePath) {
+        synchronized (sink) {
+            return parseXML(filePath, sink);
+        }
+    }
+    
+    /**
+     * Parses the XML file at the specified path, handing its results to the
+     * given sink instead of the parser's own.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @param sink the sink that the results of this file are handed to
+     * @return the report for the file
+     * @see #parseXML(String)
+     */
+    public ValidationReport parseXML(String filePath, ReportSink sink) {
+        try {
+            return validate(filePath, sink);
+        } catch (IOException e) {
+            return fileError(filePath, e.getMessage(), sink);
+        }
+    }
+    
+    /**
+     * Parses an XML document read from a stream, such as standard input or a
+     * pipe, in blocks of the same bounded size that parseXML() reads a file
+     * in, until the end of the stream. A gzip-compressed stream is
+     * decompressed as it is read. The stream is read only once, so with
+     * CheckPolicy.DIAGNOSE_FAILURES the full diagnostics run at once.
+     * 
+     * @param input the stream of the document, which is not closed
+     * @param name the name the document is reported under
+     * @return the report for the document
+     */
+    public ValidationReport parseStream(InputStream input, String name) {
+        return parseStream(input, name, null);
+    }
+    
+    /**
+     * Parses an XML document read from a stream, optionally reading it on a
+     * separate thread while it is scanned, as parsePipelinedXML() reads a file.
+     * 
+     * @param input the stream of the document, which is not closed
+     * @param name the name the document is reported under
+     * @param stats the timings to add to, to read the stream on a separate
+     *              thread, or null to read it on this one
+     * @return the report for the document
+     * @see #parseStream(InputStream, String)
+     */
+    public ValidationReport parseStream(InputStream input, String name, PipelineStats stats) {
+        synchronized (sink) {
+            return parseStream(input, name, stats, sink);
+        }
+    }
+    
+    /**
+     * Parses an XML document read from a stream, handing its results to the
+     * given sink instead of the parser's own.
+     * 
+     * @param input the stream of the document, which is not closed
+     * @param name the name the document is reported under
+     * @param stats the timings to add to, to read the stream on a separate
+     *              thread, or null to read it on this one
+     * @param sink the sink that the results of this document are handed to
+     * @return the report for the document
+     * @see #parseStream(InputStream, String, PipelineStats)
+     */
+    public ValidationReport parseStream(InputStream input, String name, PipelineStats stats, ReportSink sink) {
+        ParseContext context = acquireContext(name, sink);
+        try {
+            return validateStream(decompressed(input), context, stats);
+        } catch (IOException e) {
+            return fileError(name, e.getMessage(), sink);
+        } finally {
+            releaseContext(context);
+        }
+    }
+    
+    /**
+     * Reads and validates the XML file at the specified path, in blocks.
+     * The encoding is found by EncodingDetector. A file in an ASCII
+     * compatible encoding, such as UTF-8, is scanned as raw bytes, and only
+     * the text of the tags that are reported is read back from the file and
+     * decoded; any other file, such as one in UTF-16, is decoded into
+     * characters first. Lines are counted as BufferedReader.readLine() counts
+     * them, but no line is ever held whole, so memory use does not depend on
+     * the length of the longest line.
+     * A gzip-compressed file is validated while it is decompressed.
+     * 
+     * The sink does not get endDocument() if the file cannot be read.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @param sink the sink that the results of this file are handed to
+     * @return the report for the file
      * @throws IOException if an I/O error occurs while reading the file
      */
-    public void parseXML(String filePath) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            int lineNumber=1;
+    public ValidationReport validate(String filePath, ReportSink sink) throws IOException {
+        ParseContext context = acquireContext(filePath, sink);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            if (isGzip(channel)) {
+                return validateGzip(channel, context, null);
+            }
+            Charset charset = EncodingDetector.detect(channel, Charset.defaultCharset());
+            if (checkFirst(channel, charset, context)) {
+                return context.endDocument();
+            }
+            if (!EncodingDetector.isAsciiCompatible(charset)) {
+                return validateDecoded(channel, charset, context);
+            }
+            ByteBuffer buffer = context.getByteBuffer();
+            TagLexer lexer = context.getLexer();
+            lexer.reset(charset);
+            // open tags keep only their offsets; the text of those reported is read back from the file
+            context.setTextSource(new TagTextSource(channel, charset, TagTextSource.DEFAULT_CACHE_SIZE));
             
-            // reading/processing one line by calling processLine() method
-            while ((line = reader.readLine()) != null) {
-                processLine(line, lineNumber);
-                lineNumber++;  
+            // scanning one block at a time; a tag may span two blocks
+            while (true) {
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                lexer.scan(buffer, context.getTagHandler());
             }
 
-            // Repeats until both queues are empty
-            while (!errorQueue.isEmpty() || !extrasQueue.isEmpty()) {
-                // If stack is not empty, pop each E into errorQ
-                while (!tagStack.isEmpty()) {
-                    errorQueue.enqueue(tagStack.pop());
-                }
-                
-                // If either queue is empty (but not both), report each E in both queues as error
-                if ( errorQueue.isEmpty() ^ extrasQueue.isEmpty()) {
-                    try {
-                        while (!errorQueue.isEmpty()) {
-                            printError(errorQueue.dequeue());
-                        }
-                    } catch (EmptyQueueException e) { } // catch should never execute, it's needed to handle EmptyQueueException        
-                    try {
-                        while (!extrasQueue.isEmpty()) {
-                            printError(extrasQueue.dequeue());
-                        }
-                    } catch (EmptyQueueException e) { } // catch should never execute, it's needed to handle EmptyQueueException    
-                }    
-                
-                // If both queues are not empty, peek both queues
-                if (!errorQueue.isEmpty() && !extrasQueue.isEmpty()) {
-                    try {
-                        // If they don't match, dequeue from errorQ and report as error
-                        if (!errorQueue.peek().getName().equals(extrasQueue.peek().getName() )) {
-                            printError(errorQueue.dequeue());
-                        }
-                        // Else dequeue from both
-                        else {
-                            errorQueue.dequeue();
-                            extrasQueue.dequeue();
-                        }
-                    } catch (EmptyQueueException e) { } // catch should never execute, it's needed to handle EmptyQueueException
+            context.reportRemainingErrors();
+            return context.endDocument();
+        } finally {
+            releaseContext(context);
+        }
+    }
+    
+    /**
+     * Validates a document read from a stream, such as an entry of a zip
+     * archive, in blocks, as validate() reads a file. The stream is read
+     * once, so a document is never checked before its full diagnostics.
+     * 
+     * @param name the name the document is reported under
+     * @param input the stream of the document, which is not closed
+     * @param sink the sink that the results of this document are handed to
+     * @return the report for the document
+     * @throws IOException if an I/O error occurs while reading the stream
+     */
+    ValidationReport validate(String name, InputStream input, ReportSink sink) throws IOException {
+        ParseContext context = acquireContext(name, sink);
+        try {
+            return validateStream(decompressed(input), context, null);
+        } finally {
+            releaseContext(context);
+        }
+    }
+    
+    /**
+     * Validates a file that cannot be scanned as bytes by decoding it into
+     * characters, one block at a time, from the start of its channel.
+     * 
+     * @param channel the channel of the file, at its start
+     * @param charset the encoding of the file
+     * @param context the context of the document
+     * @return the report for the file
+     * @throws IOException if an I/O error occurs while reading the file
+     */
+    private static ValidationReport validateDecoded(FileChannel channel, Charset charset, ParseContext context)
+            throws IOException {
+        // not closed here: closing the reader would close the caller's channel
+        return validateDecoded(new InputStreamReader(Channels.newInputStream(channel), charset), charset, context);
+    }
+    
+    /**
+     * Validates a document by scanning the characters of a Reader, one block at a time.
+     * 
+     * @param reader the reader of the decoded document, which is not closed
+     * @param charset the encoding of the document
+     * @param context the context of the document
+     * @return the report for the document
+     * @throws IOException if an I/O error occurs while reading the document
+     */
+    private static ValidationReport validateDecoded(Reader reader, Charset charset, ParseContext context)
+            throws IOException {
+        char[] buffer = context.getReadBuffer();
+        TagLexer lexer = context.getLexer();
+        lexer.reset(charset);
+        int count;
+        
+        // scanning one block at a time; a tag may span two blocks
+        while ((count = reader.read(buffer)) >= 0) {
+            lexer.scan(buffer, 0, count, context.getTagHandler());
+        }
+
+        context.reportRemainingErrors();
+        return context.endDocument();
+    }
+    
+    /**
+     * Validates a gzip-compressed file while decompressing it, from the start
+     * of its channel. Nothing is written to disk, and the inflater reads large
+     * runs of compressed bytes at a time.
+     * 
+     * @param channel the channel of the compressed file
+     * @param context the context of the document
+     * @param stats the timings to add to, to decompress on a separate thread,
+     *              or null to decompress on this one
+     * @return the report for the file
+     * @throws IOException if the file cannot be read or is not valid gzip
+     */
+    private ValidationReport validateGzip(FileChannel channel, ParseContext context, PipelineStats stats)
+            throws IOException {
+        // not closed here: closing the stream would close the caller's channel
+        InputStream input = new GZIPInputStream(Channels.newInputStream(channel), INFLATER_BUFFER_SIZE);
+        return validateStream(input, context, stats);
+    }
+    
+    /**
+     * Validates a document from a stream that can only be read once, in
+     * blocks, as validate() reads a file. The encoding is detected from the
+     * first bytes, which are then pushed back onto the stream. A document that
+     * is only checked gets the fast check alone; with DIAGNOSE_FAILURES the full
+     * diagnostics run at once, since the stream could not be read again for
+     * them, and the output is the same.
+     * 
+     * @param input the stream of the document, which is not closed
+     * @param context the context of the document
+     * @param stats the timings to add to, to read the stream on a separate
+     *              thread, or null to read it on this one
+     * @return the report for the document
+     * @throws IOException if an I/O error occurs while reading the stream
+     */
+    private ValidationReport validateStream(InputStream input, ParseContext context, PipelineStats stats)
+            throws IOException {
+        PushbackInputStream stream = new PushbackInputStream(input, EncodingDetector.PROLOG_SIZE);
+        Charset charset = EncodingDetector.detect(stream, Charset.defaultCharset());
+        boolean asciiCompatible = EncodingDetector.isAsciiCompatible(charset);
+        TagLexer lexer = context.getLexer();
+        if (checkPolicy == CheckPolicy.CHECK_ONLY) {
+            StructureChecker checker = context.getChecker();
+            boolean fault = asciiCompatible ? checker.check(Channels.newChannel(stream), lexer)
+                    : checker.check(new InputStreamReader(stream, charset), lexer);
+            if (fault) {
+                context.markErrors();
+            }
+            return context.endDocument();
+        }
+        if (!asciiCompatible) {
+            return validateDecoded(new InputStreamReader(stream, charset), charset, context);
+        }
+        lexer.reset(charset);
+        
+        if (stats != null) {
+            // scanning each block while the reader thread reads the next ones
+            try (ReadAheadReader reader = new ReadAheadReader(Channels.newChannel(stream),
+                    ReadAheadReader.DEFAULT_BUFFER_SIZE, ReadAheadReader.DEFAULT_BUFFER_COUNT, stats)) {
+                reader.start();
+                ByteBuffer buffer;
+                while ((buffer = reader.take()) != null) {
+                    lexer.scan(buffer, context.getTagHandler());
+                    reader.recycle(buffer);
                 }
-            }    
+            }
+        }
+        else {
+            // scanning one block at a time; a tag may span two blocks
+            byte[] buffer = context.getByteBuffer().array();
+            int count;
+            while ((count = stream.read(buffer)) >= 0) {
+                lexer.scan(buffer, 0, count, context.getTagHandler());
+            }
+        }
+
+        context.reportRemainingErrors();
+        return context.endDocument();
+    }
+    
+    // Whether a file starts with the two bytes that open a gzip stream
+    static boolean isGzip(FileChannel channel) throws IOException {
+        return channel.size() >= 2 && isGzipMagic(readByte(channel, 0), readByte(channel, 1));
+    }
+    
+    private static boolean isGzipMagic(byte first, byte second) {
+        return first == (byte) 0x1F && second == (byte) 0x8B;
+    }
+    
+    /**
+     * Returns a stream of the document in a stream, which is decompressed if
+     * it starts with the bytes that open a gzip stream.
+     * 
+     * @param input the stream of the document
+     * @return the stream to scan, starting at the first byte of the document
+     * @throws IOException if the stream cannot be read
+     */
+    private static InputStream decompressed(InputStream input) throws IOException {
+        PushbackInputStream stream = new PushbackInputStream(input, 2);
+        byte[] magic = new byte[2];
+        int length = 0;
+        int count;
+        while (length < magic.length && (count = stream.read(magic, length, magic.length - length)) > 0) {
+            length += count;
+        }
+        stream.unread(magic, 0, length);
+        if (length == magic.length && isGzipMagic(magic[0], magic[1])) {
+            return new GZIPInputStream(stream, INFLATER_BUFFER_SIZE);
+        }
+        return stream;
+    }
+    
+    /**
+     * Checks a document first when the check policy asks for it.
+     * An invalid document is marked as having errors if it is only checked.
+     * The channel is put back at the start of the file afterwards.
+     * 
+     * @param channel the channel of the XML file
+     * @param charset the encoding of the file
+     * @param context the context of the document
+     * @return true if the check has decided the document, so the full
+     *         diagnostics are not needed
+     * @throws IOException if the file cannot be read
+     */
+    private boolean checkFirst(FileChannel channel, Charset charset, ParseContext context) throws IOException {
+        if (checkPolicy == CheckPolicy.FULL) {
+            return false;
+        }
+        boolean fault;
+        if (EncodingDetector.isAsciiCompatible(charset)) {
+            fault = context.getChecker().check(channel, context.getLexer());
+        }
+        else {
+            Reader reader = new InputStreamReader(Channels.newInputStream(channel), charset);
+            fault = context.getChecker().check(reader, context.getLexer());
+        }
+        channel.position(0);
+        if (!fault) {
+            return true;
+        }
+        if (checkPolicy == CheckPolicy.CHECK_ONLY) {
+            context.markErrors();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parses the XML file at the specified path by mapping it into memory with
+     * FileChannel.map() and scanning its bytes in place, instead of copying
+     * them into a buffer. Files larger than a single mapping are scanned one
+     * region at a time; a tag may span two regions. A file that is not in an
+     * ASCII compatible encoding, such as UTF-16, is decoded as parseXML()
+     * decodes it, and the errors reported are the same as those reported by
+     * parseXML(). A gzip-compressed file cannot be mapped, so it is
+     * decompressed as parseXML() decompresses it.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @return the report for the file
+     */
+    public ValidationReport parseMappedXML(String filePath) {
+        synchronized (sink) {
+            return parseMappedXML(filePath, sink);
+        }
+    }
+    
+    /**
+     * Parses the XML file at the specified path by mapping it into memory,
+     * handing its results to the given sink instead of the parser's own.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @param sink the sink that the results of this file are handed to
+     * @return the report for the file
+     * @see #parseMappedXML(String)
+     */
+    public ValidationReport parseMappedXML(String filePath, ReportSink sink) {
+        return parseMappedXML(filePath, sink, MAX_REGION_SIZE);
+    }
+    
+    /**
+     * Parses the XML file at the specified path by mapping it into memory one
+     * region of the given size at a time. Smaller regions keep less of the
+     * file mapped at once, at some cost per region.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @param sink the sink that the results of this file are handed to
+     * @param regionSize the most bytes mapped at once, up to Integer.MAX_VALUE
+     * @return the report for the file
+     * @see #parseMappedXML(String)
+     */
+    public ValidationReport parseMappedXML(String filePath, ReportSink sink, long regionSize) {
+        if (regionSize < 1) {
+            throw new IllegalArgumentException("Region size must be positive: " + regionSize);
+        }
+        long maxRegionSize = Math.min(regionSize, MAX_REGION_SIZE);
+        ParseContext context = acquireContext(filePath, sink);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            if (isGzip(channel)) {
+                return validateGzip(channel, context, null);
+            }
+            Charset charset = EncodingDetector.detect(channel, Charset.defaultCharset());
+            if (checkFirst(channel, charset, context)) {
+                return context.endDocument();
+            }
+            if (!EncodingDetector.isAsciiCompatible(charset)) {
+                return validateDecoded(channel, charset, context);
+            }
+            long size = channel.size();
+            long position = 0;
+            TagLexer lexer = context.getLexer();
+            lexer.reset(charset);
+            context.setTextSource(new TagTextSource(channel, charset, TagTextSource.DEFAULT_CACHE_SIZE));
             
+            // mapping and scanning one region at a time
+            while (position < size) {
+                long length = Math.min(maxRegionSize, size - position);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                lexer.scan(region, context.getTagHandler());
+                position += length;
+            }
+
+            context.reportRemainingErrors();
+            return context.endDocument();
+
         } catch (IOException e) {
-            System.err.println("File error: " + e.getMessage());
+            return fileError(filePath, e.getMessage(), sink);
+        } finally {
+            releaseContext(context);
         }
     }
 
     /**
-     * Processes a single line of XML, extracting and validating tags.
-     * Uses our MyStack.java and MyQueue.java implementations as its data structures
-     * The stacks and queues consist of TagEntry objects
-     * 
-     * @param line the line of text to process
-     * @param lineNumber the line number in the source file
+     * Parses the XML file at the specified path, reading it on a separate
+     * thread while its bytes are scanned.
+     *
+     * @param filePath the path to the XML file to parse
+     * @return the report for the file
+     * @see #parsePipelinedXML(String, PipelineStats)
+     */
+    public ValidationReport parsePipelinedXML(String filePath) {
+        return parsePipelinedXML(filePath, new PipelineStats());
+    }
+
+    /**
+     * Parses the XML file at the specified path, reading it on a separate
+     * thread while its bytes are scanned. A ReadAheadReader fills a few
+     * recycled buffers ahead of the lexer, so when the file is not yet cached
+     * the disk is read while the previous blocks are scanned, instead of
+     * each side waiting in turn. A file that is not in an ASCII compatible
+     * encoding is decoded on one thread as parseXML() decodes it, and the
+     * errors reported are the same as those reported by parseXML(). A
+     * gzip-compressed file is decompressed on the reader thread.
+     *
+     * @param filePath the path to the XML file to parse
+     * @param stats the timings of the reading and scanning to add to
+     * @return the report for the file
      */
-    private void processLine(String line, int lineNumber) {
-        Pattern tagPattern = Pattern.compile("<\\s*/?([a-zA-Z0-9]+)([^>]*)\\s*/?>");
-        Matcher matcher = tagPattern.matcher(line);
+    public ValidationReport parsePipelinedXML(String filePath, PipelineStats stats) {
+        synchronized (sink) {
+            return parsePipelinedXML(filePath, stats, sink);
+        }
+    }
 
-        while (matcher.find()) {        
-            String fullTag = matcher.group(0);
-            String name = matcher.group(1);
-            TagEntry tag = new TagEntry(fullTag, name, lineNumber); 
+    /**
+     * Parses the XML file at the specified path, reading it on a separate
+     * thread while its bytes are scanned, and hands its results to the given
+     * sink instead of the parser's own.
+     *
+     * @param filePath the path to the XML file to parse
+     * @param stats the timings of the reading and scanning to add to
+     * @param sink the sink that the results of this file are handed to
+     * @return the report for the file
+     * @see #parsePipelinedXML(String, PipelineStats)
+     */
+    public ValidationReport parsePipelinedXML(String filePath, PipelineStats stats, ReportSink sink) {
+        ParseContext context = acquireContext(filePath, sink);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            if (isGzip(channel)) {
+                return validateGzip(channel, context, stats);
+            }
+            Charset charset = EncodingDetector.detect(channel, Charset.defaultCharset());
+            if (checkFirst(channel, charset, context)) {
+                return context.endDocument();
+            }
+            if (!EncodingDetector.isAsciiCompatible(charset)) {
+                return validateDecoded(channel, charset, context);
+            }
+            TagLexer lexer = context.getLexer();
+            lexer.reset(charset);
+            context.setTextSource(new TagTextSource(channel, charset, TagTextSource.DEFAULT_CACHE_SIZE));
+
+            // the reader's buffers are only allocated for a file that is read as it is
+            try (ReadAheadReader reader = new ReadAheadReader(channel, ReadAheadReader.DEFAULT_BUFFER_SIZE,
+                    ReadAheadReader.DEFAULT_BUFFER_COUNT, stats)) {
+                reader.start();
+
+                // scanning each block while the reader fills the next ones
+                ByteBuffer buffer;
+                while ((buffer = reader.take()) != null) {
+                    lexer.scan(buffer, context.getTagHandler());
+                    reader.recycle(buffer);
+                }
+            }
+
+            context.reportRemainingErrors();
+            return context.endDocument();
+
+        } catch (IOException e) {
+            return fileError(filePath, e.getMessage(), sink);
+        } finally {
+            releaseContext(context);
+        }
+    }
+
+    /**
+     * Parses the XML file at the specified path using every core of the machine.
+     * The file is split into chunks at line ends, which are always tag boundaries,
+     * and each chunk is memory-mapped and scanned into a ChunkSummary on the
+     * common fork-join pool. The summaries are then replayed in order through
+     * the same stack and queues as parseXML(), so the errors reported are the same.
+     * Each chunk is scanned as if no comment or other markup were open at its
+     * start; the few that turn out to start inside one, such as a multi-line
+     * comment cut by a chunk boundary, are scanned again on this thread.
+     * A file that is not in an ASCII compatible encoding is decoded on one
+     * thread as parseXML() decodes it, and a gzip-compressed file, which
+     * cannot be split, is decompressed on one thread.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @return the report for the file
+     */
+    public ValidationReport parseParallelXML(String filePath) {
+        synchronized (sink) {
+            return parseParallelXML(filePath, sink);
+        }
+    }
+    
+    /**
+     * Parses the XML file at the specified path using every core of the
+     * machine, handing its results to the given sink instead of the parser's own.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @param sink the sink that the results of this file are handed to
+     * @return the report for the file
+     * @see #parseParallelXML(String)
+     */
+    public ValidationReport parseParallelXML(String filePath, ReportSink sink) {
+        return parseParallelXML(filePath, sink, 0);
+    }
+    
+    /**
+     * Parses the XML file at the specified path using every core of the
+     * machine, split into chunks of the given size. Without a size, a chunk is
+     * at least MIN_CHUNK_SIZE bytes, and there are about four chunks per core.
+     * Smaller chunks spread a small file over more threads, at some cost per chunk.
+     * 
+     * @param filePath the path to the XML file to parse
+     * @param sink the sink that the results of this file are handed to
+     * @param chunkSize the bytes in each chunk before it is extended to a line end,
+     *        or 0 to choose from the size of the file and the number of cores
+     * @return the report for the file
+     * @see #parseParallelXML(String)
+     */
+    public ValidationReport parseParallelXML(String filePath, ReportSink sink, long chunkSize) {
+        ParseContext context = acquireContext(filePath, sink);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            if (isGzip(channel)) {
+                return validateGzip(channel, context, null);
+            }
+            Charset charset = EncodingDetector.detect(channel, Charset.defaultCharset());
+            if (checkFirst(channel, charset, context)) {
+                return context.endDocument();
+            }
+            if (!EncodingDetector.isAsciiCompatible(charset)) {
+                return validateDecoded(channel, charset, context);
+            }
+            long size = channel.size();
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            if (chunkSize <= 0) {
+                chunkSize = Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * 4L) + 1);
+            }
+            chunkSize = Math.min(chunkSize, MAX_REGION_SIZE / 2);
+            context.setTextSource(new TagTextSource(channel, charset, TagTextSource.DEFAULT_CACHE_SIZE));
             
-            boolean isClosingTag = line.charAt(matcher.start() + 1) == '/';
-            boolean isSelfClosing = matcher.group(0).contains("/>");
-
-            if (isClosingTag) {
-                try { 
-                    // If matches top of stack, pop stack and all is well
-                    if (!tagStack.isEmpty() && tagStack.peek().getName().equals(tag.getName())) {
-                        tagStack.pop();
-                    } 
-                    // Else if matches head of errorQ, dequeue and ignore 
-                    else if (!errorQueue.isEmpty() && tag.getName().equals(errorQueue.peek().getName())) {
-                        printError(errorQueue.dequeue());
-                    }
-                    // Else if stack is empty, add to errorQ
-                    else if (tagStack.isEmpty()) {
-                        errorQueue.enqueue(tag);
-                        isErrors = true;
+            MyArrayList<ForkJoinTask<ChunkSummary>> tasks = new MyArrayList<>();
+            try {
+                // splitting the file at line ends and scanning each chunk on the pool
+                MyArrayList<Long> starts = new MyArrayList<>();
+                long start = 0;
+                while (start < size) {
+                    long end = findLineEnd(channel, Math.min(start + chunkSize, size));
+                    long chunkStart = start;
+                    tasks.add(pool.submit(() -> scanChunk(channel, chunkStart, end, charset, symbols, 0)));
+                    starts.add(chunkStart);
+                    start = end;
+                }
+                
+                // replaying the summaries in document order, scanning a chunk again
+                // when the one before ends inside a comment or other markup
+                int lineOffset = 0;
+                long markupContext = 0;
+                for (int i = 0; i < tasks.size(); i++) {
+                    ChunkSummary summary = tasks.get(i).get();
+                    if (markupContext != 0) {
+                        long end = i + 1 < starts.size() ? starts.get(i + 1) : size;
+                        summary = scanChunk(channel, starts.get(i), end, charset, symbols, markupContext);
                     }
-                    else {
-                        // Search stack for matching Start_Tag using MyStack.java's iterator()
-                        Iterator<TagEntry> tagStackIterator = tagStack.iterator();                    
-                        boolean containsMatch = false;         
-                        
-                        while (tagStackIterator.hasNext()) {
-                            TagEntry containsEntry = tagStackIterator.next();
-                            
-                            if (containsEntry.getName().equals(tag.getName())) {
-                                containsMatch = true;
-                                break;
-                            }
-                        }
-                        
-                        // If stack has match, iterates again
-                        if (containsMatch) {
-                            Iterator<TagEntry> matchesTagStackIterator = tagStack.iterator();
-                            while (matchesTagStackIterator.hasNext()) {
-                                TagEntry entry = matchesTagStackIterator.next();
-                                
-                                if (entry.getName().equals(tag.getName())) {
-                                    tagStack.pop();
-                                    break;
-                                }
-                                // Pop each E from stack into errorQ until match, report as error
-                                else {                                
-                                    errorQueue.enqueue(tagStack.pop());
-                                    isErrors = true;
-                                }
-                            }
-                        }                    
-                        // If no match, add E to extrasQ
-                        if (!containsMatch) {
-                            extrasQueue.enqueue(tag);
-                            isErrors = true;
-                        }
+                    markupContext = summary.getEndContext();
+                    for (int j = 0; j < summary.size(); j++) {
+                        context.processTag(summary.isEndTag(j) ? TagLexer.END_TAG : TagLexer.START_TAG,
+                                summary.getNameId(j), lineOffset + summary.getLineNumber(j),
+                                summary.getColumn(j), summary.getOffset(j), summary.getLength(j));
                     }
-                } catch (EmptyQueueException e) { } // catch should never execute, it's needed to handle EmptyQueueException    
-
-            // If Start_Tag
-            } else if (!isSelfClosing) {
-                // Push on stack
-                tagStack.push(tag);
+                    lineOffset += summary.getLineCount();
+                }
+            } finally {
+                // when a chunk fails, the chunks not scanned yet are dropped before
+                // the channel is closed; every chunk has been scanned otherwise
+                for (int i = 0; i < tasks.size(); i++) {
+                    tasks.get(i).cancel(false);
+                }
             }
-            // If Self_Closing_Tag
-            // Ignore
+
+            context.reportRemainingErrors();
+            return context.endDocument();
+            
+        } catch (IOException e) {
+            return fileError(filePath, e.getMessage(), sink);
+        } catch (ExecutionException e) {
+            return fileError(filePath, e.getCause().getMessage(), sink);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fileError(filePath, "interrupted", sink);
+        } finally {
+            releaseContext(context);
         }
     }
     
     /**
-     * Prints a formatted error message for a malformed tag.
-     * Includes the line no. and the full text of the XML tag.
+     * Returns the number of tag names this parser has interned, which only
+     * grows as it validates documents with new names.
      * 
-     * @param tag the TagEntry containing the error
+     * @return the size of the parser's SymbolTable
      */
-    private void printError(TagEntry tag) {
-        System.out.println("Error at line: " + tag.getLineNo() + " " + tag.getFullTag() + " is not constructed correctly.");
+    public int getSymbolCount() {
+        return symbols.size();
     }
     
     /**
-     * Prints whether any errors were found during parsing.
+     * Returns a validator for a file that is validated again after each edit,
+     * which records checkpoints of the file as it validates it and scans only
+     * the part of the file around an edit again. Its results are handed to
+     * this parser's sink, with this parser's error limit.
+     * 
+     * @param filePath the path to the XML file to validate
+     * @return a validator that has not read the file yet
+     * @see IncrementalValidator
      */
-    private static void printIsErrors() {
-        if (isErrors) {
-            System.out.print("You have errors! Boooooo!!");
+    public IncrementalValidator incrementalValidator(String filePath) {
+        return incrementalValidator(filePath, IncrementalValidator.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+    
+    /**
+     * Returns a validator for a file that is validated again after each edit,
+     * with checkpoints about the given number of bytes apart. Closer
+     * checkpoints make a small edit faster to validate again, and cost a
+     * little memory and time per checkpoint.
+     * 
+     * @param filePath the path to the XML file to validate
+     * @param checkpointInterval the number of bytes between checkpoints
+     * @return a validator that has not read the file yet
+     */
+    public IncrementalValidator incrementalValidator(String filePath, int checkpointInterval) {
+        return new IncrementalValidator(this, filePath, sink, errorLimit, symbols, checkpointInterval);
+    }
+    
+    /**
+     * Reports a file that could not be read, to standard error and to the sink.
+     * 
+     * @param filePath the path of the file
+     * @param message why the file could not be read
+     * @param sink the sink that the results of the file are handed to
+     * @return the report for the file
+     */
+    private static ValidationReport fileError(String filePath, String message, ReportSink sink) {
+        System.err.println("File error: " + message);
+        ValidationReport report = new ValidationReport(filePath);
+        report.setFileError(message);
+        sink.endDocument(report);
+        return report;
+    }
+    
+    /**
+     * Maps and scans one chunk of a file on its own lexer.
+     * 
+     * @param channel the channel of the file
+     * @param start the offset of the first byte of the chunk
+     * @param end the offset just past the last byte of the chunk
+     * @param charset the encoding used to decode tag text
+     * @param symbols the table tag names are interned in
+     * @param markupContext the markup context at the start of the chunk, or 0 for none
+     * @return the summary of the unmatched tags in the chunk
+     * @throws IOException if the chunk cannot be mapped
+     */
+    static ChunkSummary scanChunk(FileChannel channel, long start, long end, Charset charset,
+            SymbolTable symbols, long markupContext) throws IOException {
+        ChunkSummary summary = new ChunkSummary(symbols, start);
+        TagLexer chunkLexer = new TagLexer();
+        chunkLexer.reset(charset, markupContext);
+        chunkLexer.scan(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), summary);
+        summary.setLineCount(chunkLexer.getLineNumber() - 1);
+        summary.setEndContext(chunkLexer.getMarkupContext());
+        return summary;
+    }
+    
+    /**
+     * Finds the end of the line containing the given offset, so a chunk can end there.
+     * A "\r\n" pair is kept together in the same chunk.
+     * 
+     * @param channel the channel of the file
+     * @param position the offset to start looking from
+     * @return the offset just past the next line terminator, or the size of the file
+     * @throws IOException if the file cannot be read
+     */
+    static long findLineEnd(FileChannel channel, long position) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int count = channel.read(buffer, position);
+            for (int i = 0; i < count; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                if (b == '\r') {
+                    // the '\n' of a "\r\n" pair may be in the next read
+                    long next = position + i + 1;
+                    if (next < size && readByte(channel, next) == '\n') {
+                        return next + 1;
+                    }
+                    return next;
+                }
+            }
+            position += count;
         }
-        else {
-            System.out.print("XML is constructed correctly. Woohoo!");
+        return size;
+    }
+    
+    // Reads a single byte at the given offset
+    private static byte readByte(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        channel.read(buffer, position);
+        return buffer.get(0);
+    }
+    
+    /**
+     * Takes an idle context from the pool, or creates one if none is idle,
+     * and starts a new document in it.
+     * 
+     * @param filePath the path of the document
+     * @param sink the sink that the results of the document are handed to
+     * @return a context used only by the calling thread until it is released
+     */
+    private ParseContext acquireContext(String filePath, ReportSink sink) {
+        ParseContext context = null;
+        synchronized (contexts) {
+            if (!contexts.isEmpty()) {
+                context = contexts.pop();
+            }
+        }
+        if (context == null) {
+            context = new ParseContext(symbols);
+        }
+        context.reset(sink);
+        context.setErrorLimit(errorLimit);
+        context.startDocument(filePath);
+        return context;
+    }
+    
+    /**
+     * Returns a context to the pool, keeping its buffers for the next document.
+     * 
+     * @param context the context to return
+     */
+    private void releaseContext(ParseContext context) {
+        context.reset(sink);
+        synchronized (contexts) {
+            contexts.push(context);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.Random;
+
+import implementations.TextReportSink;
+import implementations.XMLParser;
+
+/**
+ * Compares the full diagnostics with the check policies of XMLParser on a
+ * corpus of mostly valid files. The corpus is generated in a temporary
+ * directory: nested documents of about 100 KB, of which one in twenty has a
+ * crossed pair of tags. Each policy is warmed up before it is timed, and
+ * every policy must find the same number of invalid files.
+ *
+ * Usage: java benchmarks.CheckBenchmark [files] [rounds]
+ */
+public class CheckBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int INVALID_EVERY = 20;
+    private static final int ELEMENTS_PER_FILE = 2000;
+
+    public static void main(String[] args) throws IOException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        File directory = Files.createTempDirectory("checkbench").toFile();
+        String[] paths = generateCorpus(directory, fileCount);
+        PrintStream discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+
+        try {
+            System.out.println("Files: " + fileCount + " (" + (fileCount + INVALID_EVERY - 1) / INVALID_EVERY
+                    + " invalid), rounds: " + rounds);
+            for (XMLParser.CheckPolicy policy : XMLParser.CheckPolicy.values()) {
+                XMLParser parser = new XMLParser(new TextReportSink(discard), XMLParser.NO_ERROR_LIMIT, policy);
+                for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                    run(parser, paths);
+                }
+                int invalid = 0;
+                long start = System.nanoTime();
+                for (int i = 0; i < rounds; i++) {
+                    invalid = run(parser, paths);
+                }
+                long time = System.nanoTime() - start;
+                System.out.printf("%-17s %8.2f ms/round (%d invalid)%n", policy, time / 1e6 / rounds, invalid);
+            }
+        } finally {
+            for (String path : paths) {
+                new File(path).delete();
+            }
+            directory.delete();
+        }
+    }
+
+    // Validates every file once, returning the number of invalid files
+    private static int run(XMLParser parser, String[] paths) {
+        int invalid = 0;
+        for (String path : paths) {
+            if (parser.parseXML(path).hasErrors()) {
+                invalid++;
+            }
+        }
+        return invalid;
+    }
+
+    // Writes the corpus and returns the paths of its files
+    private static String[] generateCorpus(File directory, int fileCount) throws IOException {
+        Random random = new Random(42);
+        String[] paths = new String[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            File file = new File(directory, "doc" + i + ".xml");
+            paths[i] = file.getAbsolutePath();
+            boolean invalid = i % INVALID_EVERY == 0;
+            int crossAt = random.nextInt(ELEMENTS_PER_FILE);
+            try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
+                writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+                writer.println("<catalog>");
+                for (int j = 0; j < ELEMENTS_PER_FILE; j++) {
+                    writer.println("  <book id=\"" + j + "\">");
+                    if (invalid && j == crossAt) {
+                        writer.println("    <title>Title " + j + "<price></title></price>");
+                    } else {
+                        writer.println("    <title>Title " + j + "</title><price>" + random.nextInt(100) + "</price>");
+                    }
+                    writer.println("    <note/>");
+                    writer.println("  </book>");
+                }
+                writer.println("</catalog>");
+            }
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,110 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import implementations.DelimiterScanner;
+import implementations.TagLexer;
+
+/**
+ * Compares the word-at-a-time DelimiterScanner with a byte-at-a-time search,
+ * first on its own and then inside TagLexer, with text skipping on and off.
+ * The file is read into memory once, so only scanning is timed. Each path is
+ * warmed up before it is timed, and both must find the same delimiters and
+ * tags, so the numbers can be compared directly.
+ *
+ * The default document is generated: paragraphs of text between a few tags,
+ * as in a book or an article. Markup-dense files, with little text between
+ * their tags, gain much less.
+ *
+ * Usage: java benchmarks.DelimiterBenchmark [file] [rounds]
+ */
+public class DelimiterBenchmark {
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int PARAGRAPHS = 50000;
+
+    private static long blackhole;
+
+    public static void main(String[] args) throws IOException {
+        byte[] bytes = args.length > 0 ? Files.readAllBytes(Paths.get(args[0])) : generate();
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        ByteBuffer words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            countDelimiters(bytes, words, false);
+            countDelimiters(bytes, words, true);
+            countTags(bytes, false);
+            countTags(bytes, true);
+        }
+
+        System.out.println("Bytes: " + bytes.length + ", rounds: " + rounds);
+        report("delimiters", bytes, words, rounds, true);
+        report("lexer", bytes, words, rounds, false);
+    }
+
+    // Times the scalar and the word-at-a-time paths and prints both
+    private static void report(String label, byte[] bytes, ByteBuffer words, int rounds, boolean kernelOnly) {
+        long[] times = new long[2];
+        long[] counts = new long[2];
+        for (int path = 0; path < 2; path++) {
+            boolean words8 = path == 1;
+            long start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                counts[path] = kernelOnly ? countDelimiters(bytes, words, words8) : countTags(bytes, words8);
+            }
+            times[path] = System.nanoTime() - start;
+        }
+        System.out.printf("%-10s scalar: %7.2f ms/round (%d), words: %7.2f ms/round (%d), speedup: %.2fx%n",
+                label, times[0] / 1e6 / rounds, counts[0], times[1] / 1e6 / rounds, counts[1],
+                (double) times[0] / times[1]);
+    }
+
+    private static long countDelimiters(byte[] bytes, ByteBuffer words, boolean words8) {
+        long count = 0;
+        int i = 0;
+        while (true) {
+            i = words8 ? DelimiterScanner.indexOfDelimiter(words, i, bytes.length, (byte) '<')
+                    : DelimiterScanner.indexOfDelimiterScalar(bytes, i, bytes.length, (byte) '<');
+            if (i == bytes.length) {
+                return count;
+            }
+            count++;
+            i++;
+        }
+    }
+
+    private static long countTags(byte[] bytes, boolean words8) {
+        long[] count = new long[1];
+        TagLexer lexer = new TagLexer();
+        lexer.setTextSkipping(words8);
+        lexer.reset(StandardCharsets.UTF_8);
+        lexer.scan(bytes, 0, bytes.length, (tagLexer, type) -> {
+            count[0]++;
+            blackhole += type;
+        });
+        return count[0];
+    }
+
+    // A document of paragraphs of about 600 bytes of text each
+    private static byte[] generate() {
+        String sentence = "The quick brown fox jumps over the lazy dog, and the dog does not mind at all. ";
+        StringBuilder document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<book>\n");
+        for (int i = 0; i < PARAGRAPHS; i++) {
+            document.append("  <p id=\"").append(i).append("\">");
+            for (int j = 0; j < 4; j++) {
+                document.append(sentence);
+            }
+            document.append("<em>fox</em> ");
+            for (int j = 0; j < 4; j++) {
+                document.append(sentence);
+            }
+            document.append("</p>\n");
+        }
+        document.append("</book>\n");
+        return document.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import implementations.TagLexer;
+
+/**
+ * Compares scanning a UTF-8 file as raw bytes, as XMLParser.parseXML() does,
+ * with decoding it into characters first, as it did before and still does
+ * for UTF-16. Both paths read the file in blocks of the same size and must
+ * count the same tags, so the two numbers can be compared directly.
+ *
+ * Usage: java benchmarks.EncodingBenchmark [file] [rounds]
+ */
+public class EncodingBenchmark {
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private static int tagCount;
+    private static long blackhole;
+
+    public static void main(String[] args) throws IOException {
+        String filePath = args.length > 0 ? args[0] : "res/sample2.xml";
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runDecoded(filePath);
+            runBytes(filePath);
+        }
+
+        long decodedTime = time(filePath, rounds, false);
+        int decodedTags = tagCount;
+        long bytesTime = time(filePath, rounds, true);
+        int bytesTags = tagCount;
+
+        System.out.println("File: " + filePath + ", rounds: " + rounds);
+        System.out.printf("decoded: %8.2f ms/round (%d tags)%n", decodedTime / 1e6 / rounds, decodedTags);
+        System.out.printf("bytes:   %8.2f ms/round (%d tags)%n", bytesTime / 1e6 / rounds, bytesTags);
+        System.out.printf("speedup: %.2fx%n", (double) decodedTime / bytesTime);
+    }
+
+    // Times the given number of rounds over the whole file
+    private static long time(String filePath, int rounds, boolean bytes) throws IOException {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            if (bytes) {
+                runBytes(filePath);
+            } else {
+                runDecoded(filePath);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static TagLexer.TagHandler counter() {
+        tagCount = 0;
+        return (lexer, type) -> {
+            tagCount++;
+            blackhole += type;
+        };
+    }
+
+    private static void runDecoded(String filePath) throws IOException {
+        TagLexer lexer = new TagLexer();
+        TagLexer.TagHandler handler = counter();
+        lexer.reset(StandardCharsets.UTF_8);
+        char[] buffer = new char[BLOCK_SIZE];
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             Reader reader = new InputStreamReader(Channels.newInputStream(file.getChannel()), StandardCharsets.UTF_8)) {
+            int count;
+            while ((count = reader.read(buffer)) >= 0) {
+                lexer.scan(buffer, 0, count, handler);
+            }
+        }
+    }
+
+    private static void runBytes(String filePath) throws IOException {
+        TagLexer lexer = new TagLexer();
+        TagLexer.TagHandler handler = counter();
+        lexer.reset(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        try (RandomAccessFile file = new RandomAccessFile(filePath, "r");
+             FileChannel channel = file.getChannel()) {
+            while (true) {
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                lexer.scan(buffer, handler);
+            }
+        }
+    }
+}
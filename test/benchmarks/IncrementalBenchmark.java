@@ -0,0 +1,107 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import implementations.IncrementalValidator;
+import implementations.JsonReportSink;
+import implementations.XMLParser;
+
+/**
+ * Compares validating a large file in full after each small edit with
+ * validating it again from its checkpoints. Each edit changes one byte of a
+ * tag name in place, breaking the document or fixing it again, so writing the
+ * file costs nothing; both paths must hand the same report to the sink after
+ * every edit.
+ *
+ * Usage: java benchmarks.IncrementalBenchmark [records] [edits]
+ */
+public class IncrementalBenchmark {
+    private static final int WARMUP_EDITS = 20;
+
+    public static void main(String[] args) throws IOException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        File file = File.createTempFile("incremental", ".xml");
+        file.deleteOnExit();
+        byte[] document = generate(records);
+        Files.write(file.toPath(), document);
+
+        StringWriter output = new StringWriter();
+        JsonReportSink sink = new JsonReportSink(output);
+        IncrementalValidator validator = new XMLParser(sink).incrementalValidator(file.getPath());
+        validator.validate();
+        sink.finish();
+        take(output);
+        System.out.println("Bytes: " + document.length + ", checkpoints: " + validator.getCheckpointCount()
+                + ", edits: " + edits);
+
+        Random random = new Random(42);
+        long fullTime = 0;
+        long incrementalTime = 0;
+        long scanned = 0;
+        try (RandomAccessFile access = new RandomAccessFile(file, "rw")) {
+            for (int i = 0; i < WARMUP_EDITS + edits; i++) {
+                int offset = nameOffset(document, random.nextInt(document.length));
+                document[offset] = (byte) (document[offset] == 'n' ? 'm' : 'n');
+                access.seek(offset);
+                access.write(document[offset]);
+
+                long start = System.nanoTime();
+                validator.revalidate(offset, 1, 1);
+                sink.finish();
+                long incremental = System.nanoTime() - start;
+                String incrementalReport = take(output);
+
+                start = System.nanoTime();
+                JsonReportSink fullSink = new JsonReportSink(output);
+                new XMLParser(fullSink).parseMappedXML(file.getPath());
+                fullSink.finish();
+                long full = System.nanoTime() - start;
+                if (!take(output).equals(incrementalReport)) {
+                    throw new IllegalStateException("Reports differ after edit " + i + " at " + offset);
+                }
+                if (i >= WARMUP_EDITS) {
+                    incrementalTime += incremental;
+                    fullTime += full;
+                    scanned += validator.getScannedBytes();
+                }
+            }
+        }
+        System.out.printf("full:        %8.3f ms/edit%n", fullTime / 1e6 / edits);
+        System.out.printf("incremental: %8.3f ms/edit, %d bytes scanned, speedup: %.1fx%n",
+                incrementalTime / 1e6 / edits, scanned / edits, (double) fullTime / incrementalTime);
+    }
+
+    // Returns what the sink wrote and empties the writer
+    private static String take(StringWriter output) {
+        String text = output.toString();
+        output.getBuffer().setLength(0);
+        return text;
+    }
+
+    // Finds the first letter of the next "name" or "mame" tag name at or after an offset
+    private static int nameOffset(byte[] document, int from) {
+        for (int i = from; i + 5 < document.length; i++) {
+            if (document[i] == '<' && document[i + 2] == 'a' && document[i + 3] == 'm' && document[i + 4] == 'e') {
+                return i + 1;
+            }
+        }
+        return nameOffset(document, 0);
+    }
+
+    private static byte[] generate(int records) {
+        StringBuilder document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+        for (int i = 0; i < records; i++) {
+            document.append("  <record id=\"").append(i).append("\"><name>item ").append(i)
+                    .append("</name><value>").append(i * 7).append("</value></record>\n");
+        }
+        document.append("</records>\n");
+        return document.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import implementations.TagLexer;
+
+/**
+ * Compares TagLexer with the regular expression that XMLParser.processLine()
+ * used to compile for every line.
+ * Each path is warmed up before it is timed, and both count the same tags,
+ * so the two numbers can be compared directly.
+ * 
+ * Usage: java benchmarks.LexerBenchmark [file] [rounds]
+ */
+public class LexerBenchmark {
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static int tagCount;
+    private static long blackhole;
+
+    public static void main(String[] args) throws IOException {
+        String filePath = args.length > 0 ? args[0] : "res/sample2.xml";
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        List<String> lines = readLines(filePath);
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runRegex(lines);
+            runLexer(lines);
+        }
+
+        long regexTime = time(lines, rounds, false);
+        int regexTags = tagCount;
+        long lexerTime = time(lines, rounds, true);
+        int lexerTags = tagCount;
+
+        System.out.println("Lines: " + lines.size() + ", rounds: " + rounds);
+        System.out.println("regex: " + regexTime / rounds + " ns/round (" + regexTags + " tags)");
+        System.out.println("lexer: " + lexerTime / rounds + " ns/round (" + lexerTags + " tags)");
+        System.out.printf("speedup: %.2fx%n", (double) regexTime / lexerTime);
+    }
+
+    // Times the given number of rounds over all lines
+    private static long time(List<String> lines, int rounds, boolean lexer) {
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            if (lexer) {
+                runLexer(lines);
+            } else {
+                runRegex(lines);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    // The same work the old processLine() did to find each tag
+    private static void runRegex(List<String> lines) {
+        tagCount = 0;
+        for (String line : lines) {
+            Pattern tagPattern = Pattern.compile("<\\s*/?([a-zA-Z0-9]+)([^>]*)\\s*/?>");
+            Matcher matcher = tagPattern.matcher(line);
+            while (matcher.find()) {
+                String fullTag = matcher.group(0);
+                String name = matcher.group(1);
+                boolean isClosingTag = line.charAt(matcher.start() + 1) == '/';
+                boolean isSelfClosing = fullTag.contains("/>");
+                tagCount++;
+                // Keeps the JIT from dropping the work above
+                blackhole += name.length() + (isClosingTag ? 1 : 0) + (isSelfClosing ? 2 : 0);
+            }
+        }
+    }
+
+    private static void runLexer(List<String> lines) {
+        tagCount = 0;
+        TagLexer lexer = new TagLexer();
+        TagLexer.TagHandler handler = (l, type) -> {
+            tagCount++;
+            blackhole += type;
+        };
+        int lineNumber = 1;
+        for (String line : lines) {
+            lexer.scanLine(line, lineNumber++, handler);
+        }
+    }
+
+    private static List<String> readLines(String filePath) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
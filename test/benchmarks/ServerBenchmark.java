@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import implementations.ValidationServer;
+
+/**
+ * Measures the latency of validating a document over HTTP with an
+ * in-process ValidationServer. The first requests run before the JIT has
+ * compiled the scanner and before the pooled contexts have their buffers;
+ * the later ones show what a long-running server gives each request.
+ * The server's own stats are printed at the end.
+ *
+ * Usage: java benchmarks.ServerBenchmark [file] [requests]
+ */
+public class ServerBenchmark {
+    private static final int ELEMENTS = 5000;
+    private static final int FIRST_REQUESTS = 10;
+
+    public static void main(String[] args) throws IOException {
+        byte[] document = args.length > 0 ? Files.readAllBytes(Paths.get(args[0])) : generate();
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        ValidationServer server = new ValidationServer(0);
+        server.start();
+        URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/validate");
+        try {
+            System.out.println("Bytes: " + document.length + ", requests: " + requests);
+            long[] latencies = new long[requests];
+            for (int i = 0; i < requests; i++) {
+                long start = System.nanoTime();
+                post(url, document);
+                latencies[i] = System.nanoTime() - start;
+            }
+            report("first " + FIRST_REQUESTS, latencies, 0, Math.min(FIRST_REQUESTS, requests));
+            report("last " + requests / 2, latencies, requests - requests / 2, requests);
+            System.out.println(server.getStats());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void report(String label, long[] latencies, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += latencies[i];
+        }
+        System.out.printf("%-10s %8.3f ms/request%n", label, total / 1e6 / Math.max(1, to - from));
+    }
+
+    // Sends the document and reads the whole report, so the connection is kept alive
+    private static void post(URL url, byte[] document) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(document.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(document);
+        }
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                report.write(buffer, 0, n);
+            }
+        }
+    }
+
+    // A record-like document with a few errors
+    private static byte[] generate() {
+        StringBuilder document = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<records>\n");
+        for (int i = 0; i < ELEMENTS; i++) {
+            document.append("  <record id=\"").append(i).append("\"><name>item ").append(i)
+                    .append("</name><value>").append(i * 7).append("</value>");
+            document.append(i % 1000 == 999 ? "<note>\n" : "</record>\n");
+        }
+        document.append("</records>\n");
+        return document.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
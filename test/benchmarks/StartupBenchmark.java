@@ -0,0 +1,117 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures how long a command-line run of Parser.jar takes to print its first
+ * result, and to exit, with and without a class-data sharing archive:
+ * without any archive (-Xshare:off), with the JDK's own archive of its
+ * classes (the default), and with an application archive made by parser.sh,
+ * which also holds the parser's classes. Each run is a new JVM, and the three
+ * are taken in turn, so a change in the machine's load affects them alike.
+ * Medians are printed, since a few runs are always slowed by something else.
+ *
+ * The default document is a few lines long, so nearly all of a run is the
+ * start of the JVM.
+ *
+ * Usage: java benchmarks.StartupBenchmark jar [archive] [file] [runs]
+ */
+public class StartupBenchmark {
+    private static final int WARMUP_RUNS = 3;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.out.println("Usage: java benchmarks.StartupBenchmark jar [archive] [file] [runs]");
+            return;
+        }
+        String jar = args[0];
+        String archive = args.length > 1 ? args[1]
+                : (jar.endsWith(".jar") ? jar.substring(0, jar.length() - 4) : jar) + ".jsa";
+        String file = args.length > 2 ? args[2] : generate().getAbsolutePath();
+        int runs = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+
+        List<String[]> options = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        options.add(new String[] {"-Xshare:off"});
+        labels.add("no archive");
+        options.add(new String[0]);
+        labels.add("JDK archive");
+        if (new File(archive).isFile()) {
+            options.add(new String[] {"-Xshare:on", "-XX:SharedArchiveFile=" + archive});
+            labels.add("app archive");
+        } else {
+            System.out.println("No archive at " + archive + "; run parser.sh -archive to create it");
+        }
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            for (String[] option : options) {
+                run(option, jar, file, new long[2]);
+            }
+        }
+        long[][][] times = new long[options.size()][2][runs];
+        long[] time = new long[2];
+        for (int i = 0; i < runs; i++) {
+            for (int j = 0; j < options.size(); j++) {
+                run(options.get(j), jar, file, time);
+                times[j][0][i] = time[0];
+                times[j][1][i] = time[1];
+            }
+        }
+
+        System.out.println("Runs: " + runs + ", file: " + file);
+        for (int j = 0; j < options.size(); j++) {
+            System.out.printf("%-12s first result: %7.1f ms, exit: %7.1f ms%n", labels.get(j),
+                    median(times[j][0]) / 1e6, median(times[j][1]) / 1e6);
+        }
+    }
+
+    // Runs the parser once, timing its first byte of output and its exit
+    private static void run(String[] options, String jar, String file, long[] time)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(options));
+        command.add("-jar");
+        command.add(jar);
+        command.add(file);
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try (InputStream output = process.getInputStream()) {
+            if (output.read() < 0) {
+                throw new IOException("No output from " + command);
+            }
+            time[0] = System.nanoTime() - start;
+            while (output.read() >= 0) {
+                // the rest of the output is not timed separately
+            }
+        }
+        process.waitFor();
+        time[1] = System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    // A small document with one error, deleted when the benchmark exits
+    private static File generate() throws IOException {
+        File file = File.createTempFile("startup", ".xml");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("<?xml version=\"1.0\"?>\n<a>\n  <b>text</b>\n  <c>\n</a>\n".getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+}
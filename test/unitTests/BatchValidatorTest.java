@@ -0,0 +1,335 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.BatchValidator;
+import implementations.ReportSink;
+import implementations.TextReportSink;
+import implementations.ValidationReport;
+import implementations.XMLParser;
+
+/**
+ * Class Description:
+ * Test for the BatchValidator that validates many files in one run and
+ * prints their results in the order they were given.
+ */
+
+public class BatchValidatorTest
+{
+	// Attributes
+	private static final String VALID = "<a><b></b></a>\n";
+	private static final String INVALID = "<a>\n<b>\n</a>\n";
+	private static final int WORKERS = 4;
+	private Path directory;
+	private ByteArrayOutputStream bytes;
+	private PrintStream output;
+
+	/**
+	 * Creates a temporary directory and an output to print to before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory( "batch" );
+		bytes = new ByteArrayOutputStream();
+		output = new PrintStream( bytes, true, "UTF-8" );
+	}
+
+	/**
+	 * Deletes the directory and everything in it after each test, without
+	 * following links.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		List<Path> paths = new ArrayList<>();
+		Files.walk( directory ).forEach( paths::add );
+		Collections.reverse( paths );
+		for ( Path path : paths )
+		{
+			Files.deleteIfExists( path );
+		}
+		directory = null;
+		bytes = null;
+		output = null;
+	}
+
+	// Writes a file in the directory and returns its path
+	private String write( String name, String content ) throws IOException
+	{
+		File file = directory.resolve( name ).toFile();
+		file.getParentFile().mkdirs();
+		try ( FileOutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( content.getBytes( StandardCharsets.UTF_8 ) );
+		}
+		return file.getPath();
+	}
+
+	// Writes a gzip-compressed file in the directory and returns its path
+	private String writeGzip( String name, String content ) throws IOException
+	{
+		File file = directory.resolve( name ).toFile();
+		try ( OutputStream out = new GZIPOutputStream( new FileOutputStream( file ) ) )
+		{
+			out.write( content.getBytes( StandardCharsets.UTF_8 ) );
+		}
+		return file.getPath();
+	}
+
+	// Writes a zip archive in the directory holding the given entries, in order, and returns its path
+	private String writeZip( String name, String... entries ) throws IOException
+	{
+		File file = directory.resolve( name ).toFile();
+		try ( ZipOutputStream out = new ZipOutputStream( new FileOutputStream( file ) ) )
+		{
+			for ( int i = 0; i < entries.length; i += 2 )
+			{
+				out.putNextEntry( new ZipEntry( entries[i] ) );
+				if ( entries[i + 1] != null )
+				{
+					out.write( entries[i + 1].getBytes( StandardCharsets.UTF_8 ) );
+				}
+				out.closeEntry();
+			}
+		}
+		return file.getPath();
+	}
+
+	private int run( String... paths )
+	{
+		return new BatchValidator( output, WORKERS ).run( paths );
+	}
+
+	private String output()
+	{
+		return new String( bytes.toByteArray(), StandardCharsets.UTF_8 );
+	}
+
+	// Lists the paths that result lines start with, each once, in the order printed
+	private List<String> reportedPaths()
+	{
+		List<String> paths = new ArrayList<>();
+		for ( String line : output().split( "\n" ) )
+		{
+			int colon = line.indexOf( ": " );
+			if ( line.startsWith( "Validated " ) || colon < 0 )
+			{
+				continue;
+			}
+			String path = line.substring( 0, colon );
+			if ( paths.isEmpty() || !paths.get( paths.size() - 1 ).equals( path ) )
+			{
+				paths.add( path );
+			}
+		}
+		return paths;
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to print the results of many files in the order they were given,
+	 * whichever worker finishes first.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_OrderOfPaths() throws Exception
+	{
+		List<String> paths = new ArrayList<>();
+		for ( int i = 0; i < 100; i++ )
+		{
+			// larger files first, so later files tend to finish sooner
+			StringBuilder document = new StringBuilder();
+			for ( int j = 0; j < ( 100 - i ) * 50; j++ )
+			{
+				document.append( "<a></a>\n" );
+			}
+			document.append( i % 3 == 0 ? INVALID : VALID );
+			paths.add( write( "file" + ( 99 - i ) + ".xml", document.toString() ) );
+		}
+
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_ERRORS, run( paths.toArray( new String[0] ) ) );
+		assertEquals( "Results are not in the order given", paths, reportedPaths() );
+		assertTrue( "Wrong summary: " + output(), output().contains( "Validated 100 files: 34 with errors, 0 could not be read." ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to return the worst status of the files: 0 when all are valid, 1 when
+	 * any has errors and 2 when any could not be read.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_ExitStatus() throws Exception
+	{
+		String valid = write( "valid.xml", VALID );
+		String invalid = write( "invalid.xml", INVALID );
+		String missing = directory.resolve( "missing.xml" ).toString();
+
+		assertEquals( "Valid files did not give 0", BatchValidator.STATUS_VALID, run( valid, valid ) );
+		assertEquals( "File with errors did not give 1", BatchValidator.STATUS_ERRORS, run( valid, invalid ) );
+		assertEquals( "Missing file did not give 2", BatchValidator.STATUS_FILE_ERROR, run( invalid, missing, valid ) );
+		assertTrue( "Missing file was not reported: " + output(), output().contains( missing + ": File error: " ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to validate the paths of an @list in the order listed, skipping blank
+	 * lines, and to report a list file that cannot be read as a file error.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_ListFiles() throws Exception
+	{
+		String first = write( "first.xml", VALID );
+		String second = write( "second.xml", INVALID );
+		String list = write( "files.txt", second + "\n\n  " + first + "  \n" );
+
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_ERRORS, run( "@" + list ) );
+		List<String> expected = new ArrayList<>();
+		expected.add( second );
+		expected.add( first );
+		assertEquals( "Listed files were not validated in order", expected, reportedPaths() );
+
+		String missing = directory.resolve( "missing.txt" ).toString();
+		bytes.reset();
+		assertEquals( "Missing list did not give 2", BatchValidator.STATUS_FILE_ERROR, run( "@" + missing ) );
+		assertTrue( "Missing list was not reported: " + output(), output().contains( missing + ": File error: " ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to walk a directory and the directories below it in name order,
+	 * validating only *.xml and *.xml.gz files.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_DirectoryWalk() throws Exception
+	{
+		String b = write( "b.xml", INVALID );
+		String a = writeGzip( "a.xml.gz", VALID );
+		write( "c.txt", INVALID );
+		write( "notes.xml.bak", INVALID );
+		String d = write( "sub/d.xml", VALID );
+
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_ERRORS, run( directory.toString() ) );
+		List<String> expected = new ArrayList<>();
+		expected.add( a );
+		expected.add( b );
+		expected.add( d );
+		assertEquals( "Wrong files validated, or in the wrong order", expected, reportedPaths() );
+		assertTrue( "Compressed file was not validated: " + output(), output().contains( a + ": XML is constructed correctly. Woohoo!" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to skip a link to a directory found while walking, which here leads
+	 * back up the tree, so every file is validated once.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_SkipsDirectoryLink() throws Exception
+	{
+		String a = write( "sub/a.xml", VALID );
+		Files.createSymbolicLink( directory.resolve( "sub/loop" ), directory );
+
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_VALID, run( directory.toString() ) );
+		List<String> expected = new ArrayList<>();
+		expected.add( a );
+		assertEquals( "Link to a directory was followed", expected, reportedPaths() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to report a file the parser fails on with an unchecked exception as a
+	 * file error under the file's own path, and go on with the next file.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_RuntimeExceptionIsFileError() throws Exception
+	{
+		String bad = write( "bad.xml", VALID );
+		String good = write( "good.xml", VALID );
+		XMLParser parser = new XMLParser( new TextReportSink( output ) )
+		{
+			@Override
+			public ValidationReport validate( String filePath, ReportSink sink ) throws IOException
+			{
+				if ( filePath.endsWith( "bad.xml" ) )
+				{
+					throw new IllegalStateException( "parser failed" );
+				}
+				return super.validate( filePath, sink );
+			}
+		};
+
+		int status = new BatchValidator( output, WORKERS, parser ).run( new String[] { bad, good } );
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_FILE_ERROR, status );
+		assertTrue( "Failure was not reported under the file's path: " + output(),
+				output().contains( bad + ": File error: java.lang.IllegalStateException: parser failed" ) );
+		assertTrue( "Next file was not validated: " + output(), output().contains( good + ": XML is constructed correctly. Woohoo!" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to validate the *.xml entries of an archive in the order of the archive,
+	 * reported as "archive.zip!/entry.xml", skipping directories and other entries.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_Archive() throws Exception
+	{
+		String archive = writeZip( "bundle.zip",
+				"docs/", null,
+				"docs/z.xml", INVALID,
+				"readme.txt", INVALID,
+				"a.xml", VALID,
+				"docs/old.xml.bak", INVALID );
+
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_ERRORS, run( archive ) );
+		List<String> expected = new ArrayList<>();
+		expected.add( archive + "!/docs/z.xml" );
+		expected.add( archive + "!/a.xml" );
+		assertEquals( "Wrong entries validated, or in the wrong order", expected, reportedPaths() );
+		assertTrue( "Entry was not validated: " + output(), output().contains( archive + "!/a.xml: XML is constructed correctly. Woohoo!" ) );
+		assertTrue( "Wrong summary: " + output(), output().contains( "Validated 2 files: 1 with errors, 0 could not be read." ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BatchValidator#run(java.lang.String[])}
+	 * to report an archive that cannot be opened as a file error, with exit status 2.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_CorruptArchive() throws Exception
+	{
+		String valid = write( "valid.xml", VALID );
+		String corrupt = write( "corrupt.jar", "this is not a zip archive\n" );
+
+		assertEquals( "Wrong exit status", BatchValidator.STATUS_FILE_ERROR, run( corrupt, valid ) );
+		assertTrue( "Archive was not reported: " + output(), output().contains( corrupt + ": File error: " ) );
+		assertTrue( "Wrong summary: " + output(), output().contains( "Validated 2 files: 0 with errors, 1 could not be read." ) );
+	}
+}
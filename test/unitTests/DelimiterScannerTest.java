@@ -0,0 +1,119 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.After;
+import org.junit.Test;
+
+import implementations.DelimiterScanner;
+
+/**
+ * Class Description:
+ * Test for the DelimiterScanner that finds a delimiter and line terminators eight bytes at a time.
+ */
+
+public class DelimiterScannerTest
+{
+	// Attributes
+	private byte[] bytes;
+
+	/**
+	 * Fills an array with random bytes, a few of them delimiters, before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		Random random = new Random( 7 );
+		bytes = new byte[500];
+		random.nextBytes( bytes );
+		byte[] delimiters = { '<', '\n', '\r' };
+		for ( int i = 0; i < bytes.length; i++ )
+		{
+			if ( bytes[i] == '<' || bytes[i] == '\n' || bytes[i] == '\r' )
+			{
+				bytes[i] = 'x';
+			}
+			if ( random.nextInt( 40 ) == 0 )
+			{
+				bytes[i] = delimiters[random.nextInt( delimiters.length )];
+			}
+		}
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		bytes = null;
+	}
+
+	// Checks every range that starts at from against the scalar search
+	private void checkFrom( ByteBuffer buffer, int from )
+	{
+		for ( int limit = from; limit <= bytes.length; limit += 3 )
+		{
+			assertEquals( "Index differs from " + from + " to " + limit,
+					DelimiterScanner.indexOfDelimiterScalar( bytes, from, limit, (byte) '<' ),
+					DelimiterScanner.indexOfDelimiter( buffer, from, limit, (byte) '<' ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.DelimiterScanner#indexOfDelimiter(java.nio.ByteBuffer, int, int, byte)}
+	 * to find the same delimiter as a byte-at-a-time search, in either byte order.
+	 */
+	@Test
+	public void testIndexOfDelimiter_MatchesScalar()
+	{
+		ByteBuffer little = ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN );
+		ByteBuffer big = ByteBuffer.wrap( bytes );
+		for ( int from = 0; from < 40; from++ )
+		{
+			checkFrom( little, from );
+			checkFrom( big, from );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.DelimiterScanner#indexOfDelimiter(java.nio.ByteBuffer, int, int, byte)}
+	 * to find a delimiter after bytes one below it or with their high bit set,
+	 * which the word test must not mistake for it.
+	 */
+	@Test
+	public void testIndexOfDelimiter_NearMisses()
+	{
+		byte[] text = { ';', '\t', '\u000C', (byte) 0xBC, (byte) 0x8A, (byte) 0x8D, '=', 0, 0, '\r', '<' };
+		ByteBuffer buffer = ByteBuffer.wrap( text ).order( ByteOrder.LITTLE_ENDIAN );
+
+		assertEquals( "First delimiter is incorrect", 9, DelimiterScanner.indexOfDelimiter( buffer, 0, text.length, (byte) '<' ) );
+		assertEquals( "Delimiter past the limit was found", 9, DelimiterScanner.indexOfDelimiter( buffer, 0, 9, (byte) '<' ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.DelimiterScanner#indexOfDelimiter(java.nio.ByteBuffer, int, int, byte)}
+	 * to find any delimiter it is given, such as the '-' that may end a comment.
+	 */
+	@Test
+	public void testIndexOfDelimiter_OtherDelimiter()
+	{
+		ByteBuffer buffer = ByteBuffer.wrap( bytes ).order( ByteOrder.LITTLE_ENDIAN );
+		for ( int from = 0; from < bytes.length; from += 7 )
+		{
+			assertEquals( "Index of '-' differs from " + from,
+					DelimiterScanner.indexOfDelimiterScalar( bytes, from, bytes.length, (byte) '-' ),
+					DelimiterScanner.indexOfDelimiter( buffer, from, bytes.length, (byte) '-' ) );
+		}
+		byte[] comment = " <b> , . -->".getBytes();
+		assertEquals( "First dash is incorrect", 9,
+				DelimiterScanner.indexOfDelimiter( ByteBuffer.wrap( comment ), 0, comment.length, (byte) '-' ) );
+	}
+}
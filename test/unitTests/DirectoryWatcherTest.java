@@ -0,0 +1,152 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.DirectoryWatcher;
+
+/**
+ * Class Description:
+ * Test for the DirectoryWatcher that validates the XML files of a directory
+ * again whenever they change.
+ */
+
+public class DirectoryWatcherTest
+{
+	// Attributes
+	private static final long TIMEOUT_MILLIS = 10000;
+	private Path directory;
+	private File valid;
+	private File invalid;
+	private ByteArrayOutputStream bytes;
+	private DirectoryWatcher watcher;
+	private Thread thread;
+
+	/**
+	 * Creates a temporary directory holding a valid and an invalid file, and
+	 * starts watching it on a thread of its own.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		directory = Files.createTempDirectory( "watch" );
+		valid = directory.resolve( "valid.xml" ).toFile();
+		invalid = directory.resolve( "invalid.xml" ).toFile();
+		write( valid, "<a><b></b></a>\n" );
+		write( invalid, "<a><b></a>\n" );
+		bytes = new ByteArrayOutputStream();
+		watcher = new DirectoryWatcher( new PrintStream( bytes, true, "UTF-8" ), 2, 50 );
+		watcher.watch( directory );
+		thread = new Thread( () ->
+		{
+			try
+			{
+				watcher.run();
+			}
+			catch ( InterruptedException e )
+			{
+				// ends the watch
+			}
+		} );
+		thread.start();
+	}
+
+	/**
+	 * Stops the watcher and deletes the directory after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		watcher.close();
+		thread.join( TIMEOUT_MILLIS );
+		valid.delete();
+		invalid.delete();
+		Files.deleteIfExists( directory );
+		watcher = null;
+		thread = null;
+		bytes = null;
+	}
+
+	private void write( File file, String content ) throws IOException
+	{
+		try ( FileOutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( content.getBytes( StandardCharsets.UTF_8 ) );
+		}
+	}
+
+	private String output()
+	{
+		return new String( bytes.toByteArray(), StandardCharsets.UTF_8 );
+	}
+
+	// Waits until the output holds a number of summary lines, and returns it
+	private String awaitSummaries( int count ) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while ( true )
+		{
+			String text = output();
+			int found = text.split( "Watching ", -1 ).length - 1;
+			if ( found >= count )
+			{
+				return text;
+			}
+			assertTrue( "Timed out waiting for summary " + count + ":\n" + text, System.currentTimeMillis() < deadline );
+			Thread.sleep( 20 );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.DirectoryWatcher#run()}
+	 * to report every file when the watch starts, then only a file that changed,
+	 * and then a file that was deleted.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRun_ReportsChangedFiles() throws Exception
+	{
+		String initial = awaitSummaries( 1 );
+		assertTrue( "Valid file was not reported", initial.contains( valid.getPath() + ": XML is constructed correctly. Woohoo!" ) );
+		assertTrue( "Invalid file was not reported", initial.contains( invalid.getPath() + ": You have errors! Boooooo!!" ) );
+		assertTrue( "Wrong summary", initial.contains( "Watching 2 files: 1 with errors, 0 could not be read." ) );
+
+		// the modification time can stay the same, so the size changes too
+		write( invalid, "<a><b></b></a>\n\n" );
+		String fixed = awaitSummaries( 2 ).substring( initial.length() );
+		assertTrue( "Fixed file was not reported", fixed.contains( invalid.getPath() + ": XML is constructed correctly. Woohoo!" ) );
+		assertFalse( "Unchanged file was reported again", fixed.contains( valid.getPath() ) );
+		assertTrue( "Wrong summary", fixed.contains( "Watching 2 files: 0 with errors, 0 could not be read." ) );
+
+		invalid.delete();
+		String deleted = awaitSummaries( 3 ).substring( initial.length() + fixed.length() );
+		assertTrue( "Deleted file was not reported", deleted.contains( invalid.getPath() + ": deleted" ) );
+		assertTrue( "Wrong summary", deleted.contains( "Watching 1 files: 0 with errors, 0 could not be read." ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.DirectoryWatcher#watch(java.nio.file.Path)}
+	 * to refuse a path that is not a directory.
+	 * @throws java.lang.Exception
+	 */
+	@Test( expected = NotDirectoryException.class )
+	public void testWatch_NotADirectory() throws Exception
+	{
+		watcher.watch( valid.toPath() );
+	}
+}
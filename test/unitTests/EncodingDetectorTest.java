@@ -0,0 +1,108 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import implementations.EncodingDetector;
+
+/**
+ * Class Description:
+ * Test for the EncodingDetector that finds the encoding of a document.
+ */
+
+public class EncodingDetectorTest
+{
+	// Attributes
+	private static final Charset FALLBACK = StandardCharsets.US_ASCII;
+
+	// Detects the encoding of a document given as a string in the given encoding
+	private Charset detect( String document, Charset charset )
+	{
+		byte[] bytes = document.getBytes( charset );
+		return EncodingDetector.detect( bytes, bytes.length, FALLBACK );
+	}
+
+	/**
+	 * Test method for {@link implementations.EncodingDetector#detect(byte[], int, java.nio.charset.Charset)}
+	 * to read the encoding from the declaration, in either kind of quotes.
+	 */
+	@Test
+	public void testDetect_Declaration()
+	{
+		assertEquals( "Declared encoding is incorrect", StandardCharsets.ISO_8859_1,
+				detect( "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<a/>", StandardCharsets.US_ASCII ) );
+		assertEquals( "Declared encoding is incorrect", StandardCharsets.UTF_8,
+				detect( "<?xml version='1.0' encoding = 'utf-8' ?><a/>", StandardCharsets.US_ASCII ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.EncodingDetector#detect(byte[], int, java.nio.charset.Charset)}
+	 * to fall back for a document without a usable declaration.
+	 */
+	@Test
+	public void testDetect_Fallback()
+	{
+		assertEquals( "Document without a prolog", FALLBACK, detect( "<a>\n</a>", StandardCharsets.US_ASCII ) );
+		assertEquals( "Declaration without an encoding", FALLBACK, detect( "<?xml version=\"1.0\"?><a/>", StandardCharsets.US_ASCII ) );
+		assertEquals( "Unsupported encoding", FALLBACK, detect( "<?xml version=\"1.0\" encoding=\"no-such\"?>", StandardCharsets.US_ASCII ) );
+		assertEquals( "UTF-16 declared in single bytes", FALLBACK, detect( "<?xml version=\"1.0\" encoding=\"UTF-16\"?>", StandardCharsets.US_ASCII ) );
+		assertEquals( "Empty document", FALLBACK, EncodingDetector.detect( new byte[0], 0, FALLBACK ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.EncodingDetector#detect(byte[], int, java.nio.charset.Charset)}
+	 * to find UTF-8 and UTF-16 from a byte order mark or from the layout of the prolog.
+	 */
+	@Test
+	public void testDetect_Unicode()
+	{
+		assertEquals( "UTF-8 mark", StandardCharsets.UTF_8, detect( "\uFEFF<a/>", StandardCharsets.UTF_8 ) );
+		assertEquals( "UTF-16 mark", StandardCharsets.UTF_16, detect( "<a/>", StandardCharsets.UTF_16 ) );
+		assertEquals( "UTF-16 little-endian mark", StandardCharsets.UTF_16, detect( "\uFEFF<a/>", StandardCharsets.UTF_16LE ) );
+		assertEquals( "UTF-16BE prolog", StandardCharsets.UTF_16BE, detect( "<?xml version=\"1.0\"?>", StandardCharsets.UTF_16BE ) );
+		assertEquals( "UTF-16LE prolog", StandardCharsets.UTF_16LE, detect( "<?xml version=\"1.0\"?>", StandardCharsets.UTF_16LE ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.EncodingDetector#detect(java.io.PushbackInputStream, java.nio.charset.Charset)}
+	 * to find the declared encoding of a stream and leave the stream at its first byte.
+	 */
+	@Test
+	public void testDetect_Stream() throws IOException
+	{
+		byte[] bytes = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<a/>".getBytes( StandardCharsets.US_ASCII );
+		PushbackInputStream input = new PushbackInputStream( new ByteArrayInputStream( bytes ), EncodingDetector.PROLOG_SIZE );
+
+		assertEquals( "Declared encoding is incorrect", StandardCharsets.ISO_8859_1, EncodingDetector.detect( input, FALLBACK ) );
+		byte[] read = new byte[bytes.length + 1];
+		int length = 0;
+		int count;
+		while ( ( count = input.read( read, length, read.length - length ) ) > 0 )
+		{
+			length += count;
+		}
+		assertEquals( "Stream was not pushed back", new String( bytes, StandardCharsets.US_ASCII ),
+				new String( read, 0, length, StandardCharsets.US_ASCII ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.EncodingDetector#isAsciiCompatible(java.nio.charset.Charset)}
+	 * to accept UTF-8 and single-byte encodings, and only those.
+	 */
+	@Test
+	public void testIsAsciiCompatible()
+	{
+		assertTrue( "UTF-8", EncodingDetector.isAsciiCompatible( StandardCharsets.UTF_8 ) );
+		assertTrue( "US-ASCII", EncodingDetector.isAsciiCompatible( StandardCharsets.US_ASCII ) );
+		assertTrue( "ISO-8859-1", EncodingDetector.isAsciiCompatible( StandardCharsets.ISO_8859_1 ) );
+		assertFalse( "UTF-16", EncodingDetector.isAsciiCompatible( StandardCharsets.UTF_16 ) );
+		assertFalse( "UTF-16LE", EncodingDetector.isAsciiCompatible( StandardCharsets.UTF_16LE ) );
+	}
+}
@@ -0,0 +1,87 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.ErrorSummary;
+
+/**
+ * Class Description:
+ * Test for the ErrorSummary that counts errors past the error limit by tag name.
+ */
+
+public class ErrorSummaryTest
+{
+	// Attributes
+	private ErrorSummary summary;
+
+	/**
+	 * Initializes an empty ErrorSummary before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		summary = new ErrorSummary();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		summary = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.ErrorSummary#add(int, java.lang.String, int)}
+	 * to count errors of the same name together and widen their line range.
+	 */
+	@Test
+	public void testAdd_SameName()
+	{
+		summary.add( 3, "a", 10 );
+		summary.add( 3, "a", 4 );
+		summary.add( 3, "a", 7 );
+		
+		assertEquals( "Number of names is incorrect", 1, summary.size() );
+		assertEquals( "Count is incorrect", 3, summary.getCount( 0 ) );
+		assertEquals( "First line is incorrect", 4, summary.getFirstLine( 0 ) );
+		assertEquals( "Last line is incorrect", 10, summary.getLastLine( 0 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.ErrorSummary#add(int, java.lang.String, int)}
+	 * to list names in the order their first error was counted.
+	 */
+	@Test
+	public void testAdd_ManyNames()
+	{
+		for ( int i = 0; i < 100; i++ )
+		{
+			summary.add( 99 - i, "n" + ( 99 - i ), i );
+		}
+		summary.add( 0, "n0", 1 );
+		
+		assertEquals( "Number of names is incorrect", 100, summary.size() );
+		assertEquals( "Total is incorrect", 101, summary.getTotal() );
+		assertEquals( "Names are out of order", "n99", summary.getName( 0 ) );
+		assertEquals( "Count is incorrect", 2, summary.getCount( 99 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.ErrorSummary#getName(int)}
+	 * to throw for an index past the last name.
+	 */
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetName_OutOfBounds()
+	{
+		summary.add( 0, "a", 1 );
+		summary.getName( 1 );
+	}
+}
@@ -0,0 +1,170 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.IncrementalValidator;
+import implementations.JsonReportSink;
+import implementations.ValidationReport;
+import implementations.XMLParser;
+
+/**
+ * Class Description:
+ * Test for the IncrementalValidator that validates a file again after an edit
+ * by scanning only the part of it around the edit.
+ */
+
+public class IncrementalValidatorTest
+{
+	// Attributes
+	private File file;
+	private StringWriter output;
+	private JsonReportSink sink;
+	private StringBuilder document;
+
+	/**
+	 * Creates a temporary file holding a document of many short records.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "incremental", ".xml" );
+		output = new StringWriter();
+		sink = new JsonReportSink( output );
+		document = new StringBuilder( "<?xml version=\"1.0\"?>\n<records>\n" );
+		for ( int i = 0; i < 2000; i++ )
+		{
+			document.append( "  <record id=\"" ).append( i ).append( "\"><name>item</name></record>\n" );
+		}
+		document.append( "</records>\n" );
+		write();
+	}
+
+	/**
+	 * Deletes the file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		file = null;
+		output = null;
+		sink = null;
+		document = null;
+	}
+
+	private void write() throws IOException
+	{
+		try ( FileOutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( document.toString().getBytes( StandardCharsets.UTF_8 ) );
+		}
+	}
+
+	// Replaces part of the document, writes it and validates it again
+	private ValidationReport edit( IncrementalValidator validator, int offset, int removed, String inserted ) throws IOException
+	{
+		document.replace( offset, offset + removed, inserted );
+		write();
+		sink.finish();
+		output.getBuffer().setLength( 0 );
+		ValidationReport report = validator.revalidate( offset, removed, inserted.length() );
+		sink.finish();
+		return report;
+	}
+
+	// Returns what a full validation of the file hands to a sink
+	private String validateInFull()
+	{
+		StringWriter expected = new StringWriter();
+		JsonReportSink expectedSink = new JsonReportSink( expected );
+		new XMLParser( expectedSink ).parseMappedXML( file.getPath() );
+		expectedSink.finish();
+		return expected.toString();
+	}
+
+	/**
+	 * Test method for {@link implementations.IncrementalValidator#revalidate(long, long, long)}
+	 * to report the same errors as a full validation after an edit breaks the
+	 * document and after another fixes it, scanning only a small part of it.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRevalidate_MatchesFullValidation() throws Exception
+	{
+		IncrementalValidator validator = new XMLParser( sink ).incrementalValidator( file.getPath(), 1024 );
+		assertTrue( "Document was invalid", validator.validate().isValid() );
+		assertEquals( "Whole file was not scanned", file.length(), validator.getScannedBytes() );
+		assertTrue( "Too few checkpoints", validator.getCheckpointCount() > 50 );
+
+		int offset = document.indexOf( "</name>", document.length() / 2 );
+		ValidationReport broken = edit( validator, offset, "</name>".length(), "</nme>" );
+		assertFalse( "Broken document was valid", broken.isValid() );
+		assertEquals( "Errors differ from a full validation", validateInFull(), output.toString() );
+		assertTrue( "Too much was scanned again: " + validator.getScannedBytes(), validator.getScannedBytes() < 4096 );
+
+		ValidationReport fixed = edit( validator, offset, "</nme>".length(), "</name>" );
+		assertTrue( "Fixed document was invalid", fixed.isValid() );
+		assertEquals( "Report differs from a full validation", validateInFull(), output.toString() );
+	}
+
+	/**
+	 * Test method for {@link implementations.IncrementalValidator#revalidate(long, long, long)}
+	 * to keep scanning past the edit while the old checkpoints were reached in
+	 * another markup context, as when a comment is opened that hides every tag after it.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRevalidate_CommentChangesContext() throws Exception
+	{
+		IncrementalValidator validator = new XMLParser( sink ).incrementalValidator( file.getPath(), 1024 );
+		validator.validate();
+
+		int offset = document.indexOf( "<record id=\"100\"" );
+		edit( validator, offset, 0, "<!--" );
+		assertEquals( "Errors differ from a full validation", validateInFull(), output.toString() );
+		assertTrue( "Rest of the file was not scanned again", validator.getScannedBytes() > file.length() / 2 );
+
+		int end = document.indexOf( "\n", document.indexOf( "<record id=\"900\"" ) );
+		edit( validator, end, 0, "-->" );
+		assertEquals( "Report differs from a full validation", validateInFull(), output.toString() );
+
+		// a stray "-->" is text, and the checkpoints after it were reached outside of any comment both times
+		ValidationReport removed = edit( validator, offset, "<!--".length(), "" );
+		assertEquals( "Report differs from a full validation", validateInFull(), output.toString() );
+		assertTrue( "Document without the comment was invalid", removed.isValid() );
+		assertTrue( "Scanning did not stop after the comment", validator.getScannedBytes() < file.length() / 2 );
+	}
+
+	/**
+	 * Test method for {@link implementations.IncrementalValidator#revalidate(long, long, long)}
+	 * to validate the whole file again when its size does not agree with the edit.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testRevalidate_SizeMismatch() throws Exception
+	{
+		IncrementalValidator validator = new XMLParser( sink ).incrementalValidator( file.getPath(), 1024 );
+		validator.validate();
+		document.append( "</extra>\n" );
+		write();
+		sink.finish();
+		output.getBuffer().setLength( 0 );
+
+		assertFalse( "Appended end tag was not reported", validator.revalidate( 0, 0, 0 ).isValid() );
+		sink.finish();
+		assertEquals( "Whole file was not scanned again", file.length(), validator.getScannedBytes() );
+		assertEquals( "Report differs from a full validation", validateInFull(), output.toString() );
+	}
+}
@@ -0,0 +1,165 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.ParseContext;
+import implementations.TextReportSink;
+import implementations.ValidationError;
+import implementations.ValidationReport;
+
+/**
+ * Class Description:
+ * Test for the ParseContext that matches the tags of a document and reports
+ * the ones left unmatched once the document ends.
+ */
+
+public class ParseContextTest
+{
+	// Attributes
+	private ParseContext context;
+	private StringWriter output;
+
+	/**
+	 * Initializes a context that prints to a string before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		context = new ParseContext();
+		output = new StringWriter();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		context = null;
+		output = null;
+	}
+
+	// Validates a document in the context, keeping at most errorLimit errors one by one
+	private ValidationReport validate( String document, int errorLimit )
+	{
+		context.reset( new TextReportSink( output ) );
+		context.setErrorLimit( errorLimit );
+		context.startDocument( "test.xml" );
+		context.getLexer().reset( StandardCharsets.UTF_8 );
+		char[] chars = document.toCharArray();
+		context.getLexer().scan( chars, 0, chars.length, context.getTagHandler() );
+		context.reportRemainingErrors();
+		return context.endDocument();
+	}
+
+	// Lists the errors of a report, in order, as kind:line:name
+	private static String errors( ValidationReport report )
+	{
+		StringBuilder errors = new StringBuilder();
+		for ( int i = 0; i < report.getErrorCount(); i++ )
+		{
+			ValidationError error = report.getError( i );
+			errors.append( error.getKind() ).append( ':' ).append( error.getLine() ).append( ':' )
+					.append( error.getName() ).append( ' ' );
+		}
+		return errors.toString();
+	}
+
+	/**
+	 * Test method for {@link implementations.ParseContext#reportRemainingErrors()}
+	 * to walk the two error queues front to front once the document ends:
+	 * the open tags go into errorQ from the top of the stack down, a pair of
+	 * heads with the same name cancels, any other head of errorQ is reported,
+	 * and what is left of extrasQ is reported last.
+	 */
+	@Test
+	public void testReportRemainingErrors_InterleavedQueues()
+	{
+		// extrasQ holds </a> and </b>; errorQ gets <y>, <a>, <x> and <root>
+		ValidationReport report = validate( "<root>\n</a>\n</b>\n<x>\n<a>\n<y>\n", Integer.MAX_VALUE );
+		assertEquals( "Errors are not in the order of the queues",
+				"UNCLOSED_TAG:6:y UNCLOSED_TAG:4:x UNCLOSED_TAG:1:root UNMATCHED_END_TAG:3:b ", errors( report ) );
+		assertTrue( "Document has no errors", report.hasErrors() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ParseContext#reportRemainingErrors()}
+	 * to report an error found while the document is scanned before the
+	 * errors left at its end, and to keep reporting errorQ once extrasQ is empty.
+	 */
+	@Test
+	public void testReportRemainingErrors_ReportedWhileScanning()
+	{
+		// </a> queues <c> and <b> in errorQ, and </c> then matches its head, which is reported at once
+		ValidationReport report = validate( "<a>\n<b>\n<c>\n</a>\n</c>\n</d>\n<e>\n", Integer.MAX_VALUE );
+		assertEquals( "Errors are not in the order found",
+				"UNCLOSED_TAG:3:c UNCLOSED_TAG:2:b UNMATCHED_END_TAG:6:d UNCLOSED_TAG:7:e ", errors( report ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.ParseContext#reportRemainingErrors()}
+	 * to report nothing at the end of a document whose queues are both empty,
+	 * even though tags are still open, as the parser always has.
+	 */
+	@Test
+	public void testReportRemainingErrors_EmptyQueues()
+	{
+		ValidationReport report = validate( "<a>\n<b>\n</b>\n<c>\n", Integer.MAX_VALUE );
+		assertEquals( "Open tags were reported", "", errors( report ) );
+		assertFalse( "Document has errors", report.hasErrors() );
+		assertTrue( "Document is not valid", report.isValid() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ParseContext#setErrorLimit(int)}
+	 * to keep the first error of a document, the start tag left open before
+	 * two unmatched end tags, and to count the other two.
+	 */
+	@Test
+	public void testSetErrorLimit_KeepsFirstErrors()
+	{
+		String document = "<r>\n</x>\n</y>\n";
+		assertEquals( "Wrong errors without a limit",
+				"UNCLOSED_TAG:1:r UNMATCHED_END_TAG:2:x UNMATCHED_END_TAG:3:y ",
+				errors( validate( document, Integer.MAX_VALUE ) ) );
+
+		ValidationReport report = validate( document, 1 );
+		assertEquals( "First error was not kept", "UNCLOSED_TAG:1:r ", errors( report ) );
+		assertEquals( "Wrong number of errors counted", 2, report.getDroppedErrorCount() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ParseContext#setErrorLimit(int)}
+	 * to count every error, the tag left open included, when none are kept.
+	 */
+	@Test
+	public void testSetErrorLimit_CountsOpenTags()
+	{
+		ValidationReport report = validate( "<r>\n</x>\n</y>\n", 0 );
+		assertEquals( "Errors were kept", 0, report.getErrorCount() );
+		assertEquals( "Wrong number of errors counted", 3, report.getDroppedErrorCount() );
+		assertTrue( "Document has no errors", report.hasErrors() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ParseContext#setErrorLimit(int)}
+	 * to keep the same errors that come first without a limit, in the same
+	 * order, when the queues are reconciled at the end of the document.
+	 */
+	@Test
+	public void testSetErrorLimit_SameOrderAsWithoutLimit()
+	{
+		ValidationReport report = validate( "<root>\n</a>\n</b>\n<x>\n<a>\n<y>\n", 2 );
+		assertEquals( "Kept errors are not the first ones", "UNCLOSED_TAG:6:y UNCLOSED_TAG:4:x ", errors( report ) );
+		assertTrue( "Too few errors counted", report.getDroppedErrorCount() >= 2 );
+	}
+}
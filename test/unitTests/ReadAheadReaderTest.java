@@ -0,0 +1,171 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.PipelineStats;
+import implementations.ReadAheadReader;
+
+/**
+ * Class Description:
+ * Test for the ReadAheadReader that reads a file on its own thread.
+ */
+
+public class ReadAheadReaderTest
+{
+	// Attributes
+	private File file;
+	private RandomAccessFile access;
+	private PipelineStats stats;
+
+	/**
+	 * Creates an empty temporary file before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "readahead", ".xml" );
+		stats = new PipelineStats();
+	}
+
+	/**
+	 * Closes and deletes the file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		if ( access != null )
+		{
+			access.close();
+		}
+		file.delete();
+		file = null;
+		access = null;
+		stats = null;
+	}
+
+	// Writes the file and opens a channel on it
+	private FileChannel open( String content ) throws IOException
+	{
+		try ( FileOutputStream output = new FileOutputStream( file ) )
+		{
+			output.write( content.getBytes( "UTF-8" ) );
+		}
+		access = new RandomAccessFile( file, "r" );
+		return access.getChannel();
+	}
+
+	// Takes every buffer from the reader and returns their bytes in order
+	private String readAll( ReadAheadReader reader ) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer buffer;
+		while ( ( buffer = reader.take() ) != null )
+		{
+			while ( buffer.hasRemaining() )
+			{
+				bytes.write( buffer.get() );
+			}
+			reader.recycle( buffer );
+		}
+		return bytes.toString( "UTF-8" );
+	}
+
+	/**
+	 * Test method for {@link implementations.ReadAheadReader#take()}
+	 * to return the whole file in order through fewer buffers than it fills.
+	 */
+	@Test
+	public void testTake_InOrder() throws IOException
+	{
+		String content = "<a>\n<b x=\"1\">text</b>\n<c/>\n</a>\n";
+		try ( ReadAheadReader reader = new ReadAheadReader( open( content ), 5, 2, stats ) )
+		{
+			reader.start();
+			assertEquals( "Bytes are incorrect", content, readAll( reader ) );
+			assertNull( "Reader did not stay at the end", reader.take() );
+		}
+		assertEquals( "Byte count is incorrect", content.length(), stats.getBytesRead() );
+		assertEquals( "Buffer count is incorrect", ( content.length() + 4 ) / 5, stats.getBuffersRead() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ReadAheadReader#take()}
+	 * to return null at once for an empty file.
+	 */
+	@Test
+	public void testTake_Empty() throws IOException
+	{
+		try ( ReadAheadReader reader = new ReadAheadReader( open( "" ), 5, 2, stats ) )
+		{
+			reader.start();
+			assertNull( "Empty file has a buffer", reader.take() );
+		}
+		assertEquals( "Buffer count is incorrect", 0, stats.getBuffersRead() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ReadAheadReader#take()}
+	 * to read a channel that is not a file, such as a gzip stream being
+	 * decompressed, from its start to its end.
+	 */
+	@Test
+	public void testTake_Stream() throws IOException
+	{
+		String content = "<a>\n<b x=\"1\">text</b>\n<c/>\n</a>\n";
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try ( GZIPOutputStream output = new GZIPOutputStream( compressed ) )
+		{
+			output.write( content.getBytes( "UTF-8" ) );
+		}
+		GZIPInputStream input = new GZIPInputStream( new ByteArrayInputStream( compressed.toByteArray() ) );
+		try ( ReadAheadReader reader = new ReadAheadReader( Channels.newChannel( input ), 5, 2, stats ) )
+		{
+			reader.start();
+			assertEquals( "Bytes are incorrect", content, readAll( reader ) );
+		}
+		assertEquals( "Byte count is incorrect", content.length(), stats.getBytesRead() );
+	}
+
+	/**
+	 * Test method for {@link implementations.ReadAheadReader#close()}
+	 * to stop a reader that is waiting for a free buffer.
+	 */
+	@Test
+	public void testClose_BeforeEnd() throws IOException
+	{
+		ReadAheadReader reader = new ReadAheadReader( open( "<a><b></b></a>" ), 2, 2, stats );
+		reader.start();
+		assertNotNull( "First buffer is missing", reader.take() );
+		reader.close();
+
+		assertTrue( "Reader read past its free buffers", stats.getBuffersRead() <= 2 );
+	}
+
+	/**
+	 * Test method for {@link implementations.ReadAheadReader#ReadAheadReader(java.nio.channels.ReadableByteChannel, int, int, implementations.PipelineStats)}
+	 * to reject a reader with no buffers.
+	 */
+	@Test( expected = IllegalArgumentException.class )
+	public void testConstructor_NoBuffers() throws IOException
+	{
+		new ReadAheadReader( open( "<a/>" ), 5, 0, stats );
+	}
+}
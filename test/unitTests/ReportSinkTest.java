@@ -0,0 +1,149 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.JsonReportSink;
+import implementations.ReportSink;
+import implementations.SarifReportSink;
+import implementations.TextReportSink;
+import implementations.ValidationError;
+import implementations.ValidationReport;
+
+/**
+ * Class Description:
+ * Test for the text, JSON and SARIF sinks that print a ValidationReport.
+ */
+
+public class ReportSinkTest
+{
+	// Attributes
+	private StringWriter buffer;
+	private ValidationReport report;
+	private ValidationError unclosed;
+	private ValidationError unmatched;
+
+	/**
+	 * Initializes a report with two errors before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		buffer = new StringWriter();
+		report = new ValidationReport( "res/a.xml" );
+		unclosed = new ValidationError( ValidationError.Kind.UNCLOSED_TAG, 3, 5, 40, "<a x=\"1\">", "a" );
+		unmatched = new ValidationError( ValidationError.Kind.UNMATCHED_END_TAG, 7, 1, 92, "</b>", "b" );
+		report.addError( unclosed );
+		report.addError( unmatched );
+		report.setHasErrors( true );
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		buffer = null;
+		report = null;
+		unclosed = null;
+		unmatched = null;
+	}
+
+	// Hands the report to the sink the way the parser does
+	private String print( ReportSink sink )
+	{
+		sink.startDocument( report.getFilePath() );
+		sink.error( unclosed );
+		sink.error( unmatched );
+		sink.endDocument( report );
+		sink.finish();
+		return buffer.toString();
+	}
+
+	/**
+	 * Test method for {@link implementations.TextReportSink}
+	 * to print one line per error followed by the verdict.
+	 */
+	@Test
+	public void testTextSink()
+	{
+		String separator = System.lineSeparator();
+		String expected = "Error at line: 3 <a x=\"1\"> is not constructed correctly." + separator
+				+ "Error at line: 7 </b> is not constructed correctly." + separator
+				+ "You have errors! Boooooo!!";
+
+		assertEquals( "Text output is incorrect", expected, print( new TextReportSink( buffer ) ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TextReportSink}
+	 * to print the verdict for a valid document.
+	 */
+	@Test
+	public void testTextSink_Valid()
+	{
+		ReportSink sink = new TextReportSink( buffer );
+		ValidationReport valid = new ValidationReport( "res/b.xml" );
+		sink.startDocument( valid.getFilePath() );
+		sink.endDocument( valid );
+		sink.finish();
+
+		assertEquals( "Text output is incorrect", "XML is constructed correctly. Woohoo!", buffer.toString() );
+	}
+
+	/**
+	 * Test method for {@link implementations.JsonReportSink}
+	 * to print one escaped JSON object per document.
+	 */
+	@Test
+	public void testJsonSink()
+	{
+		String expected = "{\"file\":\"res/a.xml\",\"errors\":["
+				+ "{\"kind\":\"UNCLOSED_TAG\",\"line\":3,\"column\":5,\"offset\":40,\"name\":\"a\",\"tag\":\"<a x=\\\"1\\\">\"},"
+				+ "{\"kind\":\"UNMATCHED_END_TAG\",\"line\":7,\"column\":1,\"offset\":92,\"name\":\"b\",\"tag\":\"</b>\"}"
+				+ "],\"errorCount\":2,\"droppedErrors\":0,\"hasErrors\":true,\"fileError\":null,\"valid\":false}" + System.lineSeparator();
+
+		assertEquals( "JSON output is incorrect", expected, print( new JsonReportSink( buffer ) ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.SarifReportSink}
+	 * to print a complete log with one result per error.
+	 */
+	@Test
+	public void testSarifSink()
+	{
+		String output = print( new SarifReportSink( buffer ) );
+
+		assertTrue( "Log does not start with its version", output.startsWith( "{\"version\":\"2.1.0\"" ) );
+		assertTrue( "Result is missing", output.contains( "{\"ruleId\":\"UNCLOSED_TAG\"" ) );
+		assertTrue( "Result is missing", output.contains( "{\"ruleId\":\"UNMATCHED_END_TAG\"" ) );
+		assertTrue( "Region is incorrect", output.contains( "\"region\":{\"startLine\":7,\"startColumn\":1,\"byteOffset\":92" ) );
+		assertTrue( "Run was not successful", output.contains( "\"executionSuccessful\":true" ) );
+		assertTrue( "Log is not complete", output.trim().endsWith( "]}]}]}" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.ValidationReport#isValid()}
+	 * to be false for a document that could not be read.
+	 */
+	@Test
+	public void testReport_FileError()
+	{
+		ValidationReport missing = new ValidationReport( "res/missing.xml" );
+		missing.setFileError( "not found" );
+
+		assertFalse( "Report of a missing file is valid", missing.isValid() );
+		assertFalse( "Report of a missing file has errors", missing.hasErrors() );
+		assertEquals( "Error count is incorrect", 2, report.getErrorCount() );
+		assertSame( "Errors are out of order", unmatched, report.getError( 1 ) );
+	}
+}
@@ -0,0 +1,110 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.StructureChecker;
+import implementations.SymbolTable;
+import implementations.TagLexer;
+
+/**
+ * Class Description:
+ * Test for the StructureChecker that only answers whether a document is valid.
+ */
+
+public class StructureCheckerTest
+{
+	// Attributes
+	private StructureChecker checker;
+	private TagLexer lexer;
+
+	/**
+	 * Initializes a checker and lexer before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		checker = new StructureChecker( new SymbolTable() );
+		lexer = new TagLexer();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		checker = null;
+		lexer = null;
+	}
+
+	// Checks a document given as a string
+	private boolean check( String document ) throws IOException
+	{
+		ReadableByteChannel channel = Channels.newChannel( new ByteArrayInputStream( document.getBytes( "UTF-8" ) ) );
+		return checker.check( channel, lexer );
+	}
+
+	/**
+	 * Test method for {@link implementations.StructureChecker#check(java.nio.channels.ReadableByteChannel, implementations.TagLexer)}
+	 * to accept nested, self-closing and attributed tags.
+	 */
+	@Test
+	public void testCheck_Valid() throws IOException
+	{
+		assertFalse( "Valid document has a fault", check( "<?xml version=\"1.0\"?>\n<a x=\"1\">\n<b/><c>text</c>\n</a>\n" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.StructureChecker#check(java.nio.channels.ReadableByteChannel, implementations.TagLexer)}
+	 * to find an end tag that does not close the innermost tag.
+	 */
+	@Test
+	public void testCheck_Crossed() throws IOException
+	{
+		assertTrue( "Crossed tags were not found", check( "<a>\n<b>\n</a>\n</b>\n" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.StructureChecker#check(java.nio.channels.ReadableByteChannel, implementations.TagLexer)}
+	 * to accept start tags left open at the end, as the parser does.
+	 */
+	@Test
+	public void testCheck_Unclosed() throws IOException
+	{
+		assertFalse( "Unclosed tags at the end are a fault", check( "<a>\n<b></b>\n" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.StructureChecker#check(java.nio.channels.ReadableByteChannel, implementations.TagLexer)}
+	 * to start over for each document.
+	 */
+	@Test
+	public void testCheck_Reused() throws IOException
+	{
+		assertTrue( "Extra end tag was not found", check( "</a>" ) );
+		assertFalse( "Fault was kept from the previous document", check( "<a></a>" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.StructureChecker#check(java.io.Reader, implementations.TagLexer)}
+	 * to check a document that has been decoded into characters.
+	 */
+	@Test
+	public void testCheck_Reader() throws IOException
+	{
+		assertTrue( "Crossed tags were not found", checker.check( new StringReader( "<a>\n<b>\n</a>\n</b>\n" ), lexer ) );
+		assertFalse( "Valid document has a fault", checker.check( new StringReader( "<a>\n<b/>\n</a>\n" ), lexer ) );
+	}
+}
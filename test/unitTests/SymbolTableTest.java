@@ -0,0 +1,115 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.SymbolTable;
+
+/**
+ * Class Description:
+ * Test for the SymbolTable that maps tag names to int ids.
+ */
+
+public class SymbolTableTest
+{
+	// Attributes
+	private SymbolTable symbols;
+
+	/**
+	 * Initializes an empty SymbolTable before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		symbols = new SymbolTable();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		symbols = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.SymbolTable#intern(java.lang.String)}
+	 * to give the same id to the same name.
+	 */
+	@Test
+	public void testIntern_SameName()
+	{
+		int first = symbols.intern( "Language" );
+		int second = symbols.intern( "Language" );
+		
+		assertEquals( "Same name got different ids", first, second );
+		assertEquals( "Symbol table size is incorrect", 1, symbols.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.SymbolTable#intern(java.lang.String)}
+	 * to give different ids to different names, including names that differ only in case.
+	 */
+	@Test
+	public void testIntern_DifferentNames()
+	{
+		int lower = symbols.intern( "i" );
+		int upper = symbols.intern( "I" );
+		int other = symbols.intern( "b" );
+		
+		assertNotEquals( lower, upper );
+		assertNotEquals( lower, other );
+		assertNotEquals( upper, other );
+		assertEquals( "Symbol table size is incorrect", 3, symbols.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.SymbolTable#intern(char[], int, int)}
+	 * to find a name from part of a character buffer.
+	 */
+	@Test
+	public void testIntern_CharBuffer()
+	{
+		int id = symbols.intern( "Driver" );
+		char[] buffer = "Driverxyz".toCharArray();
+		
+		assertEquals( "Buffer lookup got a different id", id, symbols.intern( buffer, 6, "Driver".hashCode() ) );
+		assertEquals( "Symbol table size is incorrect", 1, symbols.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.SymbolTable#getName(int)}
+	 * to return the name of every id after the table has grown.
+	 */
+	@Test
+	public void testGetName_AfterGrowing()
+	{
+		for ( int i = 0; i < 1000; i++ )
+		{
+			assertEquals( "Ids are not assigned in order", i, symbols.intern( "tag" + i ) );
+		}
+		for ( int i = 0; i < 1000; i++ )
+		{
+			assertEquals( "Name is incorrect", "tag" + i, symbols.getName( i ) );
+			assertEquals( "Id changed after growing", i, symbols.intern( "tag" + i ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.SymbolTable#getName(int)}
+	 * to return the same String instance for the same id.
+	 */
+	@Test
+	public void testGetName_SameInstance()
+	{
+		int id = symbols.intern( new String( "Category" ) );
+		
+		assertSame( "Name is not shared", symbols.getName( id ), symbols.getName( symbols.intern( "Category" ) ) );
+	}
+}
@@ -0,0 +1,228 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.TagLexer;
+
+/**
+ * Class Description:
+ * Test for the TagLexer scanning characters in blocks, and for a single line
+ * finding the same tags as the regular expression it replaced.
+ */
+
+public class TagLexerTest
+{
+	// Attributes
+	private TagLexer lexer;
+	private StringBuilder found;
+
+	/**
+	 * Initializes a lexer before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		lexer = new TagLexer();
+		found = new StringBuilder();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		lexer = null;
+		found = null;
+	}
+
+	// Scans a document in blocks of the given size, recording each tag as type:line:column:text
+	private String scan( String document, int blockSize )
+	{
+		found.setLength( 0 );
+		lexer.reset( Charset.defaultCharset() );
+		char[] chars = document.toCharArray();
+		for ( int offset = 0; offset < chars.length; offset += blockSize )
+		{
+			lexer.scan( chars, offset, Math.min( blockSize, chars.length - offset ), ( tagLexer, type ) ->
+				found.append( type ).append( ':' ).append( tagLexer.getLineNumber() ).append( ':' )
+						.append( tagLexer.getColumn() ).append( ':' ).append( tagLexer.getText() ).append( ' ' ) );
+		}
+		return found.toString();
+	}
+
+	// Scans one line, recording each tag as type:name:column:text
+	private String scanLine( String line )
+	{
+		found.setLength( 0 );
+		lexer.scanLine( line, 1, ( tagLexer, type ) ->
+			found.append( type ).append( ':' ).append( tagLexer.getName() ).append( ':' )
+					.append( tagLexer.getColumn() ).append( ':' ).append( tagLexer.getText() ).append( ' ' ) );
+		return found.toString();
+	}
+
+	// Finds the tags of one line with the pattern the lexer replaced, recorded as scanLine() records them
+	private static String matchLine( String line )
+	{
+		StringBuilder tags = new StringBuilder();
+		Matcher matcher = Pattern.compile( "<\\s*/?([a-zA-Z0-9]+)([^>]*)\\s*/?>" ).matcher( line );
+		while ( matcher.find() )
+		{
+			// the old parser took a '/' right after the '<' as an end tag before looking for "/>"
+			int type = line.charAt( matcher.start() + 1 ) == '/' ? TagLexer.END_TAG
+					: matcher.group( 0 ).contains( "/>" ) ? TagLexer.SELF_CLOSING_TAG : TagLexer.START_TAG;
+			tags.append( type ).append( ':' ).append( matcher.group( 1 ) ).append( ':' )
+					.append( matcher.start() + 1 ).append( ':' ).append( matcher.group( 0 ) ).append( ' ' );
+		}
+		return tags.toString();
+	}
+
+	/**
+	 * Test method for {@link implementations.TagLexer#scanLine(CharSequence, int, implementations.TagLexer.TagHandler)}
+	 * to find the same tags, with the same names, types and text, as the
+	 * regular expression that the parser used to match on each line.
+	 */
+	@Test
+	public void testScanLine_SameTagsAsRegex()
+	{
+		String[] lines = { "<a>text</a>", "< /a>", "</ a>", "<a <b>", "<<a>", "<a/ b>", "</a/>", "<a/>", "< a >",
+				"</a >", "<a b=c/>", "<a\t/>", "<a/ >", "<  /a  >", "<1a>", "<a-b>", "<a:b x>", "<>", "</>", "<a",
+				"a>", "<a>>", "<a >< /b>", "<a><b/></a>" };
+		for ( String line : lines )
+		{
+			assertEquals( "Tags differ from the regex for " + line, matchLine( line ), scanLine( line ) );
+		}
+
+		// the cases where the two are easiest to tell apart, spelled out
+		assertEquals( "Space before the slash", "1:a:1:< /a> ", scanLine( "< /a>" ) );
+		assertEquals( "Space after the slash", "", scanLine( "</ a>" ) );
+		assertEquals( "Start tag inside a start tag", "1:a:1:<a <b> ", scanLine( "<a <b>" ) );
+		assertEquals( "Doubled angle bracket", "1:a:2:<a> ", scanLine( "<<a>" ) );
+		assertEquals( "Slash not before the '>'", "1:a:1:<a/ b> ", scanLine( "<a/ b>" ) );
+		assertEquals( "End tag ending in a slash", "2:a:1:</a/> ", scanLine( "</a/>" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagLexer#scan(char[], int, int, implementations.TagLexer.TagHandler)}
+	 * to find the same tags whatever the size of the blocks.
+	 */
+	@Test
+	public void testScan_AnyBlockSize()
+	{
+		String document = "<a x=\"1\">\r\n  <b/></a\n>< /c>\r<d></d>";
+		String expected = "1:1:1:<a x=\"1\"> 3:2:3:<b/> 1:3:2:< /c> 1:4:1:<d> 2:4:4:</d> ";
+		
+		for ( int blockSize = 1; blockSize <= document.length(); blockSize++ )
+		{
+			assertEquals( "Tags differ for blocks of " + blockSize, expected, scan( document, blockSize ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.TagLexer#scan(byte[], int, int, implementations.TagLexer.TagHandler)}
+	 * to find the tags of UTF-8 bytes, counting columns in bytes and decoding
+	 * the text of each tag, even when a block ends inside a character.
+	 */
+	@Test
+	public void testScan_Utf8Bytes()
+	{
+		byte[] bytes = "<a t=\"\u00e9\">\n<\u00e9/><b>\u00fc</b>".getBytes( StandardCharsets.UTF_8 );
+		String expected = "1:1:1:<a t=\"\u00e9\"> 1:2:6:<b> 2:2:11:</b> ";
+		
+		for ( int blockSize = 1; blockSize <= bytes.length; blockSize++ )
+		{
+			found.setLength( 0 );
+			lexer.reset( StandardCharsets.UTF_8 );
+			for ( int offset = 0; offset < bytes.length; offset += blockSize )
+			{
+				lexer.scan( bytes, offset, Math.min( blockSize, bytes.length - offset ), ( tagLexer, type ) ->
+					found.append( type ).append( ':' ).append( tagLexer.getLineNumber() ).append( ':' )
+							.append( tagLexer.getColumn() ).append( ':' ).append( tagLexer.getText() ).append( ' ' ) );
+			}
+			assertEquals( "Tags differ for blocks of " + blockSize, expected, found.toString() );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.TagLexer#scan(byte[], int, int, implementations.TagLexer.TagHandler)}
+	 * to skip comments, CDATA sections, processing instructions and a DOCTYPE
+	 * with an internal subset, over any number of lines and blocks, and to
+	 * keep a '>' in a quoted value inside its tag.
+	 */
+	@Test
+	public void testScan_Markup()
+	{
+		String document = "<?xml version=\"1.0\"?>\n<!DOCTYPE r [\n<!ENTITY e \"<x>\">\n]>\n"
+				+ "<r a='>'><!-- <b>\n</r> --><![CDATA[ </r> ]]>\n<?pi <c> ?></r>";
+		String expected = "1:5:1:<r a='>'> 2:7:12:</r> ";
+		byte[] bytes = document.getBytes( StandardCharsets.US_ASCII );
+		
+		for ( int blockSize = 1; blockSize <= bytes.length; blockSize++ )
+		{
+			assertEquals( "Characters differ for blocks of " + blockSize, expected, scan( document, blockSize ) );
+			found.setLength( 0 );
+			lexer.reset( StandardCharsets.US_ASCII );
+			for ( int offset = 0; offset < bytes.length; offset += blockSize )
+			{
+				lexer.scan( bytes, offset, Math.min( blockSize, bytes.length - offset ), ( tagLexer, type ) ->
+					found.append( type ).append( ':' ).append( tagLexer.getLineNumber() ).append( ':' )
+							.append( tagLexer.getColumn() ).append( ':' ).append( tagLexer.getText() ).append( ' ' ) );
+			}
+			assertEquals( "Bytes differ for blocks of " + blockSize, expected, found.toString() );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.TagLexer#getMarkupContext()}
+	 * to carry a comment left open at the end of a line to a lexer that
+	 * scans the rest of the document.
+	 */
+	@Test
+	public void testGetMarkupContext_Resume()
+	{
+		assertEquals( "Context outside of markup", 0, lexer.getMarkupContext() );
+		scan( "<a>\n<!-- <b>\n", 64 );
+		long context = lexer.getMarkupContext();
+		assertTrue( "Open comment has no context", context != 0 );
+		
+		TagLexer resumed = new TagLexer();
+		resumed.reset( Charset.defaultCharset(), context );
+		found.setLength( 0 );
+		char[] rest = "<c> -->\n<d>".toCharArray();
+		resumed.scan( rest, 0, rest.length, ( tagLexer, type ) ->
+			found.append( tagLexer.getLineNumber() ).append( ':' ).append( tagLexer.getText() ).append( ' ' ) );
+		assertEquals( "Resumed lexer is not inside the comment", "2:<d> ", found.toString() );
+		assertEquals( "Context after the comment", 0, resumed.getMarkupContext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagLexer#getText()}
+	 * to cut the text of a tag longer than MAX_TEXT_LENGTH short.
+	 */
+	@Test
+	public void testGetText_LongTag()
+	{
+		StringBuilder document = new StringBuilder( "<a x=\"" );
+		for ( int i = 0; i < TagLexer.MAX_TEXT_LENGTH; i++ )
+		{
+			document.append( 'y' );
+		}
+		document.append( "\"/>" );
+		
+		String tags = scan( document.toString(), 4096 );
+		assertTrue( "Long tag is not self-closing", tags.startsWith( "3:1:1:<a x=\"yyy" ) );
+		assertTrue( "Long tag text was not cut short", tags.endsWith( "yyy... " ) );
+		assertEquals( "Tag length is incorrect", TagLexer.MAX_TEXT_LENGTH + 9, lexer.getTagLength() );
+	}
+}
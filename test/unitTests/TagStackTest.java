@@ -0,0 +1,177 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.EmptyStackException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.SymbolTable;
+import implementations.TagEntry;
+import implementations.TagStack;
+
+/**
+ * Class Description:
+ * Test for the array-based stack of open tags used by the parser.
+ */
+
+public class TagStackTest
+{
+	// Attributes
+	private TagStack stack;
+	private SymbolTable symbols;
+	private int a;
+	private int b;
+	private int c;
+
+	/**
+	 * Initializes an empty TagStack and three interned names before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		stack = new TagStack();
+		symbols = new SymbolTable();
+		a = symbols.intern( "a" );
+		b = symbols.intern( "b" );
+		c = symbols.intern( "c" );
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		stack = null;
+		symbols = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#push(int, int, int, long, int, java.lang.String)}
+	 * to add tags on top of the stack.
+	 */
+	@Test
+	public void testPush_Top()
+	{
+		stack.push( a, 1, 1, 0, 3, "<a>" );
+		stack.push( b, 2, 1, 0, 3, "<b>" );
+		
+		assertEquals( "Stack size is incorrect", 2, stack.size() );
+		assertEquals( "Top of stack is incorrect", b, stack.getNameId( 0 ) );
+		assertEquals( "Bottom of stack is incorrect", a, stack.getNameId( 1 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#push(int, int, int, long, int, java.lang.String)}
+	 * to keep every tag when the arrays grow.
+	 */
+	@Test
+	public void testPush_Grow()
+	{
+		for ( int i = 0; i < 1000; i++ )
+		{
+			stack.push( i % 3, i, 1, 0, 3, "<x>" );
+		}
+		
+		assertEquals( "Stack size is incorrect", 1000, stack.size() );
+		assertEquals( "Top of stack is incorrect", 999 % 3, stack.getNameId( 0 ) );
+		assertEquals( "Bottom of stack is incorrect", 0, stack.getNameId( 999 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#pop()}
+	 * to remove the top of the stack.
+	 */
+	@Test
+	public void testPop()
+	{
+		stack.push( a, 1, 1, 0, 3, "<a>" );
+		stack.push( b, 2, 1, 0, 3, "<b>" );
+		stack.pop();
+		
+		assertEquals( "Stack size is incorrect", 1, stack.size() );
+		assertEquals( "Top of stack is incorrect", a, stack.getNameId( 0 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#pop()}
+	 * to throw an EmptyStackException when the stack is empty.
+	 */
+	@Test( expected = EmptyStackException.class )
+	public void testPop_Empty()
+	{
+		stack.pop();
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#popTagEntry(implementations.SymbolTable, implementations.TagTextSource)}
+	 * to return the top tag with its text, name and line number.
+	 */
+	@Test
+	public void testPopTagEntry()
+	{
+		stack.push( a, 1, 1, 0, 3, "<a>" );
+		stack.push( c, 7, 1, 0, 10, "<c id=\"1\">" );
+		TagEntry entry = stack.popTagEntry( symbols, null );
+		
+		assertEquals( "Text is incorrect", "<c id=\"1\">", entry.getFullTag() );
+		assertEquals( "Name is incorrect", "c", entry.getName() );
+		assertEquals( "Name id is incorrect", c, entry.getNameId() );
+		assertEquals( "Line number is incorrect", 7, entry.getLineNo() );
+		assertEquals( "Stack size is incorrect", 1, stack.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#contains(int)}
+	 * to find open tags at any depth.
+	 */
+	@Test
+	public void testContains()
+	{
+		stack.push( a, 1, 1, 0, 3, "<a>" );
+		stack.push( b, 2, 1, 0, 3, "<b>" );
+		
+		assertTrue( stack.contains( a ) );
+		assertTrue( stack.contains( b ) );
+		assertFalse( stack.contains( c ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#contains(int)}
+	 * to keep counting a name that is open more than once.
+	 */
+	@Test
+	public void testContains_AfterPop()
+	{
+		stack.push( a, 1, 1, 0, 3, "<a>" );
+		stack.push( b, 2, 1, 0, 3, "<b>" );
+		stack.push( a, 3, 1, 0, 3, "<a>" );
+		stack.pop();
+		
+		assertTrue( stack.contains( a ) );
+		stack.pop();
+		assertFalse( stack.contains( b ) );
+		stack.pop();
+		assertFalse( stack.contains( a ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.TagStack#clear()}
+	 * to empty the stack.
+	 */
+	@Test
+	public void testClear()
+	{
+		stack.push( a, 1, 1, 0, 3, "<a>" );
+		stack.push( b, 2, 1, 0, 3, "<b>" );
+		stack.clear();
+		
+		assertTrue( stack.isEmpty() );
+		assertFalse( stack.contains( a ) );
+	}
+}
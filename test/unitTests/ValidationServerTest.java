@@ -0,0 +1,180 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.ValidationServer;
+
+/**
+ * Class Description:
+ * Test for the ValidationServer that validates documents sent over HTTP.
+ */
+
+public class ValidationServerTest
+{
+	// Attributes
+	private ValidationServer server;
+	private String base;
+
+	/**
+	 * Starts a server on a free loopback port before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		server = new ValidationServer( 0 );
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the server after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		server.stop( 0 );
+		server = null;
+	}
+
+	// Sends a request and returns the status code followed by the body
+	private String request( String method, String path, String body ) throws IOException
+	{
+		HttpURLConnection connection = (HttpURLConnection) new URL( base + path ).openConnection();
+		connection.setRequestMethod( method );
+		if ( body != null )
+		{
+			connection.setDoOutput( true );
+			try ( OutputStream out = connection.getOutputStream() )
+			{
+				out.write( body.getBytes( StandardCharsets.UTF_8 ) );
+			}
+		}
+		int status = connection.getResponseCode();
+		InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for ( int n; ( n = in.read( buffer ) ) > 0; )
+		{
+			bytes.write( buffer, 0, n );
+		}
+		in.close();
+		return status + " " + new String( bytes.toByteArray(), StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * Test method for a POST to /validate, which validates its body and
+	 * answers with the JSON report of the document.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testValidate_Body() throws Exception
+	{
+		String invalid = request( "POST", "/validate?name=a.xml", "<a>\n<b></a>" );
+		assertTrue( "Report was not returned: " + invalid, invalid.startsWith( "200 {\"file\":\"a.xml\"" ) );
+		assertTrue( "Unclosed tag was not reported: " + invalid, invalid.contains( "\"kind\":\"UNCLOSED_TAG\",\"line\":2" ) );
+		assertTrue( "Document was valid: " + invalid, invalid.contains( "\"valid\":false" ) );
+
+		String valid = request( "POST", "/validate", "<a><b/></a>" );
+		assertTrue( "Document was invalid: " + valid, valid.contains( "\"file\":\"request\"" ) && valid.contains( "\"valid\":true" ) );
+	}
+
+	/**
+	 * Test method for a GET of /validate with a path, which validates the
+	 * local file, and without one, which is refused.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testValidate_Path() throws Exception
+	{
+		File file = File.createTempFile( "server", ".xml" );
+		try
+		{
+			try ( FileOutputStream out = new FileOutputStream( file ) )
+			{
+				out.write( "<a>\n</b>\n</a>".getBytes( StandardCharsets.UTF_8 ) );
+			}
+			String path = URLEncoder.encode( file.getAbsolutePath(), "UTF-8" );
+			String report = request( "GET", "/validate?path=" + path, null );
+			assertTrue( "Report was not returned: " + report, report.startsWith( "200 " ) );
+			assertTrue( "Document was valid: " + report, report.contains( "\"valid\":false" ) );
+
+			file.delete();
+			String missing = request( "GET", "/validate?path=" + path, null );
+			assertTrue( "File error was not reported: " + missing, missing.startsWith( "200 " ) && !missing.contains( "\"fileError\":null" ) );
+		}
+		finally
+		{
+			file.delete();
+		}
+		assertTrue( "Request without a path was answered", request( "GET", "/validate", null ).startsWith( "400 " ) );
+	}
+
+	/**
+	 * Test method for GET /stats, which counts the requests answered so far.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testStats() throws Exception
+	{
+		request( "POST", "/validate", "<a></a>" );
+		request( "POST", "/validate", "<a>" );
+		request( "GET", "/validate", null );
+
+		String stats = request( "GET", "/stats", null );
+		assertTrue( "Requests were not counted: " + stats, stats.contains( "\"requests\":3" ) );
+		assertTrue( "Refused request was not counted as failed: " + stats, stats.contains( "\"failedRequests\":1" ) );
+		assertEquals( "Request count differs", 3, server.getStats().getRequestCount() );
+		assertTrue( "Latency percentile exceeds the maximum",
+				server.getStats().getLatencyPercentileNanos( 0.99 ) <= server.getStats().getMaxLatencyNanos() );
+	}
+
+	/**
+	 * Test method for a POST to /validate on a server whose parser may hold
+	 * only a few tag names, which replaces its parser once a document goes
+	 * over that number and still answers every document in full.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testValidate_ReplacesFullParser() throws Exception
+	{
+		server.stop( 0 );
+		server = new ValidationServer( new InetSocketAddress( InetAddress.getLoopbackAddress(), 0 ), 2,
+				ValidationServer.DEFAULT_ERROR_LIMIT, 10 );
+		server.start();
+		base = "http://127.0.0.1:" + server.getAddress().getPort();
+
+		for ( int i = 0; i < 5; i++ )
+		{
+			StringBuilder document = new StringBuilder();
+			for ( int j = 0; j < 8; j++ )
+			{
+				document.append( "<n" ).append( i ).append( '_' ).append( j ).append( "></n" )
+						.append( i ).append( '_' ).append( j ).append( ">\n" );
+			}
+			document.append( "<open" ).append( i ).append( ">\n</a>\n" );
+			String report = request( "POST", "/validate", document.toString() );
+			assertTrue( "Unclosed tag was not reported: " + report,
+					report.contains( "\"kind\":\"UNCLOSED_TAG\",\"line\":9" ) && report.contains( "\"name\":\"open" + i + "\"" ) );
+			assertTrue( "Parser was not replaced: " + server.getSymbolCount(), server.getSymbolCount() <= 10 );
+		}
+	}
+}
@@ -0,0 +1,592 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.BatchValidator;
+import implementations.JsonReportSink;
+import implementations.PipelineStats;
+import implementations.TagLexer;
+import implementations.ValidationError;
+import implementations.ValidationReport;
+import implementations.XMLParser;
+
+/**
+ * Class Description:
+ * Test for the XMLParser that validates a file read in blocks, mapped into
+ * memory, read on a separate thread or split into chunks scanned on every
+ * core, or a stream, and reports the same errors whichever way it reads it.
+ */
+
+public class XMLParserTest
+{
+	// Attributes
+	private static final long CHUNK_SIZE = 256;
+	private static final int THREADS = 8;
+	private static final int PARSES = 400;
+	private File file;
+	private XMLParser parser;
+
+	/**
+	 * Creates a temporary file and a parser before each test.
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "parser", ".xml" );
+		parser = new XMLParser( new JsonReportSink( new StringWriter() ) );
+	}
+
+	/**
+	 * Deletes the file after each test.
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		file = null;
+		parser = null;
+	}
+
+	private void write( String document ) throws IOException
+	{
+		write( file, document );
+	}
+
+	private static void write( File file, String document ) throws IOException
+	{
+		try ( FileOutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( document.getBytes( StandardCharsets.UTF_8 ) );
+		}
+	}
+
+	private static void writeGzip( File file, String document ) throws IOException
+	{
+		try ( OutputStream out = new GZIPOutputStream( new FileOutputStream( file ) ) )
+		{
+			out.write( document.getBytes( StandardCharsets.UTF_8 ) );
+		}
+	}
+
+	// Validates a file in each mode, in the order default, -mmap, -parallel and -pipeline
+	private ValidationReport[] parseInEveryMode( File file )
+	{
+		return new ValidationReport[] {
+				parser.parseXML( file.getPath(), new JsonReportSink( new StringWriter() ) ),
+				parser.parseMappedXML( file.getPath(), new JsonReportSink( new StringWriter() ) ),
+				parser.parseParallelXML( file.getPath(), new JsonReportSink( new StringWriter() ), CHUNK_SIZE ),
+				parser.parsePipelinedXML( file.getPath(), new PipelineStats(), new JsonReportSink( new StringWriter() ) ) };
+	}
+
+	// Creates files whose documents each have a different number of errors
+	private static File[] createFiles( int count ) throws IOException
+	{
+		File[] files = new File[count];
+		for ( int i = 0; i < count; i++ )
+		{
+			files[i] = File.createTempFile( "concurrent", ".xml" );
+			StringBuilder document = new StringBuilder( "<a>\n" );
+			for ( int j = 0; j <= i; j++ )
+			{
+				document.append( "<b id=\"" ).append( j ).append( "\">\n" );
+			}
+			document.append( "</a>\n</c>\n" );
+			write( files[i], document.toString() );
+		}
+		return files;
+	}
+
+	private static void delete( File[] files )
+	{
+		for ( File file : files )
+		{
+			if ( file != null )
+			{
+				file.delete();
+			}
+		}
+	}
+
+	// Builds a document of many short records with errors spread through it, ending each line with lineEnd
+	private static String document( String lineEnd, boolean markup )
+	{
+		StringBuilder document = new StringBuilder( "<?xml version=\"1.0\"?>" ).append( lineEnd );
+		document.append( "<records>" ).append( lineEnd );
+		for ( int i = 0; i < 500; i++ )
+		{
+			document.append( "  <record id=\"" ).append( i ).append( "\">" ).append( lineEnd );
+			if ( markup && i % 3 == 0 )
+			{
+				// every tag in them is skipped, and a chunk can start inside them
+				document.append( "  <!-- <note>" ).append( lineEnd ).append( "  </record>" ).append( lineEnd )
+						.append( "  </note> -->" ).append( lineEnd );
+				document.append( "  <![CDATA[" ).append( lineEnd ).append( "  </records>" ).append( lineEnd )
+						.append( "  ]]>" ).append( lineEnd );
+			}
+			document.append( "    <name>item</name>" ).append( lineEnd );
+			if ( i % 37 == 5 )
+			{
+				document.append( "    <open>" ).append( lineEnd );
+			}
+			if ( i % 41 == 7 )
+			{
+				document.append( "    </stray>" ).append( lineEnd );
+			}
+			document.append( "  </record>" ).append( lineEnd );
+		}
+		document.append( "</records>" ).append( lineEnd );
+		return document.toString();
+	}
+
+	// Returns what parseXML hands to a sink for the file
+	private String parse()
+	{
+		return parse( file );
+	}
+
+	private String parse( File file )
+	{
+		StringWriter output = new StringWriter();
+		JsonReportSink sink = new JsonReportSink( output );
+		assertFalse( "Document had no errors", parser.parseXML( file.getPath(), sink ).isValid() );
+		sink.finish();
+		return output.toString();
+	}
+
+	// Lists the errors of a report, in order, as kind:line:column:name:tag, leaving out
+	// byte offsets, which are not known for every source
+	private static String errors( ValidationReport report )
+	{
+		StringBuilder errors = new StringBuilder();
+		for ( int i = 0; i < report.getErrorCount(); i++ )
+		{
+			ValidationError error = report.getError( i );
+			errors.append( error.getKind() ).append( ':' ).append( error.getLine() ).append( ':' )
+					.append( error.getColumn() ).append( ':' ).append( error.getName() ).append( ':' )
+					.append( error.getTag() ).append( '\n' );
+		}
+		return errors.toString();
+	}
+
+	// Returns what parseParallelXML hands to a sink for the file, split into small chunks
+	private String parseParallel()
+	{
+		StringWriter output = new StringWriter();
+		JsonReportSink sink = new JsonReportSink( output );
+		assertFalse( "Document had no errors", parser.parseParallelXML( file.getPath(), sink, CHUNK_SIZE ).isValid() );
+		sink.finish();
+		return output.toString();
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseParallelXML(java.lang.String, implementations.ReportSink, long)}
+	 * to report the same errors as parseXML, with the line numbers of every
+	 * chunk added up, when the file is split into many chunks.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseParallelXML_MatchesParseXML() throws Exception
+	{
+		write( document( "\n", false ) );
+		assertEquals( "Errors differ from parseXML", parse(), parseParallel() );
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseMappedXML(java.lang.String, implementations.ReportSink, long)}
+	 * to report the same as parseXML when the file is mapped whole, and when
+	 * it is mapped in many small regions that cut tags and "\r\n" pairs in two.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseMappedXML_MatchesParseXML() throws Exception
+	{
+		for ( String lineEnd : new String[] { "\n", "\r\n" } )
+		{
+			write( document( lineEnd, true ) );
+			String expected = parse();
+			for ( long regionSize : new long[] { Long.MAX_VALUE, 4096, 97 } )
+			{
+				StringWriter output = new StringWriter();
+				JsonReportSink sink = new JsonReportSink( output );
+				assertFalse( "Document had no errors", parser.parseMappedXML( file.getPath(), sink, regionSize ).isValid() );
+				sink.finish();
+				assertEquals( "Errors differ from parseXML with regions of " + regionSize, expected, output.toString() );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseParallelXML(java.lang.String, implementations.ReportSink, long)}
+	 * to keep each "\r\n" in one chunk, so every line is counted once.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseParallelXML_CrLfLineEnds() throws Exception
+	{
+		write( document( "\r\n", false ) );
+		assertEquals( "Errors differ from parseXML", parse(), parseParallel() );
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseParallelXML(java.lang.String, implementations.ReportSink, long)}
+	 * to scan a chunk again when it starts inside a comment or CDATA section
+	 * cut by a chunk boundary, so the tags inside them are still skipped.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseParallelXML_MarkupAcrossChunks() throws Exception
+	{
+		write( document( "\n", true ) );
+		assertEquals( "Errors differ from parseXML", parse(), parseParallel() );
+
+		write( document( "\r\n", true ) );
+		assertEquals( "Errors differ from parseXML", parse(), parseParallel() );
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parsePipelinedXML(java.lang.String, implementations.PipelineStats, implementations.ReportSink)}
+	 * to report the same as parseXML while the file is read on a separate
+	 * thread, and to count every byte of the file as read.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParsePipelinedXML_MatchesParseXML() throws Exception
+	{
+		for ( String lineEnd : new String[] { "\n", "\r\n" } )
+		{
+			write( document( lineEnd, true ) );
+			StringWriter output = new StringWriter();
+			JsonReportSink sink = new JsonReportSink( output );
+			PipelineStats stats = new PipelineStats();
+			assertFalse( "Document had no errors", parser.parsePipelinedXML( file.getPath(), stats, sink ).isValid() );
+			sink.finish();
+			assertEquals( "Errors differ from parseXML", parse(), output.toString() );
+			assertEquals( "Wrong number of bytes read", file.length(), stats.getBytesRead() );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseXML(java.lang.String, implementations.ReportSink)}
+	 * to hand each of many documents parsed at once on one parser the same
+	 * results as when it is parsed alone, each to a sink of its own.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseXML_ConcurrentParses() throws Exception
+	{
+		File[] files = new File[5];
+		ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+		try
+		{
+			files = createFiles( files.length );
+			String[] expected = new String[files.length];
+			for ( int i = 0; i < files.length; i++ )
+			{
+				expected[i] = parse( files[i] );
+			}
+
+			List<Future<String>> results = new ArrayList<>();
+			for ( int i = 0; i < PARSES; i++ )
+			{
+				File parsed = files[i % files.length];
+				results.add( executor.submit( () -> parse( parsed ) ) );
+			}
+			for ( int i = 0; i < PARSES; i++ )
+			{
+				assertEquals( "Results of parse " + i + " differ", expected[i % files.length], results.get( i ).get() );
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+			delete( files );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseXML(java.lang.String)}
+	 * to hand the results of documents parsed at once on one parser to its
+	 * own sink one whole document at a time.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseXML_ConcurrentParsesSharedSink() throws Exception
+	{
+		File[] files = new File[5];
+		ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+		try
+		{
+			files = createFiles( files.length );
+			int[] remaining = new int[files.length];
+			String[] expected = new String[files.length];
+			for ( int i = 0; i < files.length; i++ )
+			{
+				expected[i] = parse( files[i] ).trim();
+				remaining[i] = PARSES / files.length;
+			}
+
+			StringWriter output = new StringWriter();
+			JsonReportSink sink = new JsonReportSink( output );
+			XMLParser shared = new XMLParser( sink );
+			List<Future<ValidationReport>> results = new ArrayList<>();
+			for ( int i = 0; i < PARSES; i++ )
+			{
+				String path = files[i % files.length].getPath();
+				results.add( executor.submit( () -> shared.parseXML( path ) ) );
+			}
+			for ( Future<ValidationReport> result : results )
+			{
+				result.get();
+			}
+			sink.finish();
+
+			String[] lines = output.toString().trim().split( "\n" );
+			assertEquals( "Wrong number of results", PARSES, lines.length );
+			for ( String line : lines )
+			{
+				int index = 0;
+				while ( index < files.length && !line.trim().equals( expected[index] ) )
+				{
+					index++;
+				}
+				assertTrue( "Results of documents were mixed: " + line, index < files.length );
+				remaining[index]--;
+			}
+			for ( int i = 0; i < files.length; i++ )
+			{
+				assertEquals( "Wrong number of results for file " + i, 0, remaining[i] );
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+			delete( files );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseXML(java.lang.String, implementations.ReportSink)}
+	 * to cut the text of a tag longer than TagLexer.MAX_TEXT_LENGTH short when
+	 * it is read back from the file, as the lexer cuts it short.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseXML_LongTagCutShort() throws Exception
+	{
+		StringBuilder document = new StringBuilder( "<a>\n<b value=\"" );
+		for ( int i = 0; i < TagLexer.MAX_TEXT_LENGTH * 3; i++ )
+		{
+			document.append( 'x' );
+		}
+		document.append( "\">\n</a>\n" );
+		write( document.toString() );
+
+		StringWriter output = new StringWriter();
+		ValidationReport report = parser.parseXML( file.getPath(), new JsonReportSink( output ) );
+		assertEquals( "Unclosed tag was not reported", 1, report.getErrorCount() );
+		ValidationError error = report.getError( 0 );
+		assertEquals( "Wrong tag reported", "b", error.getName() );
+		assertEquals( "Text was not cut short", TagLexer.MAX_TEXT_LENGTH + "...".length(), error.getTag().length() );
+		assertTrue( "Text does not end in ...", error.getTag().startsWith( "<b value=\"x" ) && error.getTag().endsWith( "x..." ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseStream(java.io.InputStream, java.lang.String, implementations.PipelineStats, implementations.ReportSink)}
+	 * to report the same errors for a stream as for a file holding the same
+	 * bytes, whether the stream is read on this thread or on a separate one.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseStream_MatchesParseXML() throws Exception
+	{
+		for ( String lineEnd : new String[] { "\n", "\r\n" } )
+		{
+			write( document( lineEnd, true ) );
+			byte[] bytes = Files.readAllBytes( file.toPath() );
+			ValidationReport expected = parser.parseXML( file.getPath(), new JsonReportSink( new StringWriter() ) );
+			assertTrue( "Document had no errors", expected.hasErrors() );
+
+			StringWriter output = new StringWriter();
+			ValidationReport report = parser.parseStream( new ByteArrayInputStream( bytes ), "stdin", null,
+					new JsonReportSink( output ) );
+			assertEquals( "Errors differ from parseXML", errors( expected ), errors( report ) );
+			assertEquals( "Wrong name", "stdin", report.getFilePath() );
+
+			ValidationReport pipelined = parser.parseStream( new ByteArrayInputStream( bytes ), "stdin", new PipelineStats(),
+					new JsonReportSink( new StringWriter() ) );
+			assertEquals( "Errors read on a separate thread differ from parseXML", errors( expected ), errors( pipelined ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#exitStatus(implementations.ValidationReport)}
+	 * to map a valid stream to 0, a stream with errors to 1 and a stream that
+	 * cannot be read to 2.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testExitStatus_Stream() throws Exception
+	{
+		ValidationReport valid = parser.parseStream( new ByteArrayInputStream( "<a><b/></a>\n".getBytes( StandardCharsets.UTF_8 ) ),
+				"stdin", null, new JsonReportSink( new StringWriter() ) );
+		assertEquals( "Valid document did not give 0", BatchValidator.STATUS_VALID, XMLParser.exitStatus( valid ) );
+
+		ValidationReport invalid = parser.parseStream( new ByteArrayInputStream( "<a>\n<b>\n</a>\n".getBytes( StandardCharsets.UTF_8 ) ),
+				"stdin", null, new JsonReportSink( new StringWriter() ) );
+		assertEquals( "Document with errors did not give 1", BatchValidator.STATUS_ERRORS, XMLParser.exitStatus( invalid ) );
+
+		InputStream broken = new InputStream()
+		{
+			@Override
+			public int read() throws IOException
+			{
+				throw new IOException( "pipe broken" );
+			}
+		};
+		ValidationReport unreadable = parser.parseStream( broken, "stdin", null, new JsonReportSink( new StringWriter() ) );
+		assertEquals( "Wrong file error", "pipe broken", unreadable.getFileError() );
+		assertEquals( "Unreadable stream did not give 2", BatchValidator.STATUS_FILE_ERROR, XMLParser.exitStatus( unreadable ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseXML(java.lang.String, implementations.ReportSink)}
+	 * and the other modes, to report the same errors for a gzip-compressed
+	 * file as for the plain file, in every mode.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseXML_GzipMatchesPlain() throws Exception
+	{
+		String document = document( "\r\n", true );
+		write( document );
+		File compressed = File.createTempFile( "parser", ".xml.gz" );
+		try
+		{
+			writeGzip( compressed, document );
+			String expected = errors( parser.parseXML( file.getPath(), new JsonReportSink( new StringWriter() ) ) );
+			ValidationReport[] reports = parseInEveryMode( compressed );
+			String[] modes = { "default", "-mmap", "-parallel", "-pipeline" };
+			for ( int i = 0; i < reports.length; i++ )
+			{
+				assertNull( "File error in mode " + modes[i], reports[i].getFileError() );
+				assertEquals( "Errors differ from the plain file in mode " + modes[i], expected, errors( reports[i] ) );
+			}
+		}
+		finally
+		{
+			compressed.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser#parseXML(java.lang.String, implementations.ReportSink)}
+	 * and the other modes, to report a gzip-compressed file that ends before
+	 * its compressed data does as a file error.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testParseXML_TruncatedGzip() throws Exception
+	{
+		File compressed = File.createTempFile( "parser", ".xml.gz" );
+		try
+		{
+			writeGzip( compressed, document( "\n", false ) );
+			byte[] bytes = Files.readAllBytes( compressed.toPath() );
+			try ( FileOutputStream out = new FileOutputStream( compressed ) )
+			{
+				out.write( bytes, 0, bytes.length / 2 );
+			}
+			for ( ValidationReport report : parseInEveryMode( compressed ) )
+			{
+				assertNotNull( "Truncated file was not a file error", report.getFileError() );
+				assertEquals( "Wrong exit status", BatchValidator.STATUS_FILE_ERROR, XMLParser.exitStatus( report ) );
+			}
+		}
+		finally
+		{
+			compressed.delete();
+		}
+	}
+
+	// Validates the file with a policy, reading it as -pipeline does so the bytes read are counted
+	private ValidationReport parseWithPolicy( XMLParser.CheckPolicy policy, PipelineStats stats, StringWriter output )
+	{
+		XMLParser checking = new XMLParser( new JsonReportSink( new StringWriter() ), XMLParser.NO_ERROR_LIMIT, policy );
+		JsonReportSink sink = new JsonReportSink( output );
+		ValidationReport report = checking.parsePipelinedXML( file.getPath(), stats, sink );
+		sink.finish();
+		return report;
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser.CheckPolicy#CHECK_ONLY}
+	 * to report only whether a file is valid, without any errors one by one.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCheckPolicy_CheckOnly() throws Exception
+	{
+		write( document( "\n", true ) );
+		StringWriter output = new StringWriter();
+		ValidationReport invalid = parseWithPolicy( XMLParser.CheckPolicy.CHECK_ONLY, new PipelineStats(), output );
+		assertTrue( "Invalid file has no errors", invalid.hasErrors() );
+		assertEquals( "Errors were reported one by one", 0, invalid.getErrorCount() );
+		assertTrue( "Sink got more than the verdict: " + output,
+				output.toString().contains( "\"errors\":[],\"errorCount\":0" ) && output.toString().contains( "\"hasErrors\":true" ) );
+
+		write( "<a>\n<b x=\"1\"/>\n</a>\n" );
+		PipelineStats stats = new PipelineStats();
+		ValidationReport valid = parseWithPolicy( XMLParser.CheckPolicy.CHECK_ONLY, stats, new StringWriter() );
+		assertTrue( "Valid file is not valid", valid.isValid() );
+		assertEquals( "Valid file was parsed in full", 0, stats.getBytesRead() );
+	}
+
+	/**
+	 * Test method for {@link implementations.XMLParser.CheckPolicy#DIAGNOSE_FAILURES}
+	 * to give the verdict of a valid file from the check alone, and the same
+	 * full diagnostics as CheckPolicy.FULL for a file that fails the check.
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCheckPolicy_DiagnoseFailures() throws Exception
+	{
+		write( "<a>\n<b x=\"1\"/>\n</a>\n" );
+		PipelineStats full = new PipelineStats();
+		assertTrue( "Valid file is not valid", parseWithPolicy( XMLParser.CheckPolicy.FULL, full, new StringWriter() ).isValid() );
+		assertTrue( "Full diagnostics read nothing", full.getBytesRead() > 0 );
+		PipelineStats checked = new PipelineStats();
+		assertTrue( "Valid file is not valid",
+				parseWithPolicy( XMLParser.CheckPolicy.DIAGNOSE_FAILURES, checked, new StringWriter() ).isValid() );
+		assertEquals( "Valid file was parsed in full", 0, checked.getBytesRead() );
+
+		write( document( "\r\n", true ) );
+		StringWriter expected = new StringWriter();
+		parseWithPolicy( XMLParser.CheckPolicy.FULL, new PipelineStats(), expected );
+		StringWriter output = new StringWriter();
+		ValidationReport invalid = parseWithPolicy( XMLParser.CheckPolicy.DIAGNOSE_FAILURES, new PipelineStats(), output );
+		assertTrue( "Invalid file has no errors", invalid.getErrorCount() > 0 );
+		assertEquals( "Diagnostics differ from CheckPolicy.FULL", expected.toString(), output.toString() );
+	}
+}